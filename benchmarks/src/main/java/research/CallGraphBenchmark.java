@@ -0,0 +1,96 @@
+package research;
+
+import eu.fasten.core.maven.data.ResolvedRevision;
+import eu.fasten.core.maven.data.Revision;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks of exporting synthetic merged callgraphs, and of loading a merge of the same coordinates back from the
+ * merge cache. The merge itself is measured by {@link MergeBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallGraphBenchmark {
+
+    @Param({"10000", "100000"})
+    private int nodes;
+
+    @Param({"8"})
+    private int averageDegree;
+
+    private MergedCallGraph callgraph;
+    private Path folder;
+    private Revision dependent;
+    private Set<ResolvedRevision> dependencies;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        callgraph = Fixtures.callgraph(nodes, averageDegree, 42);
+        folder = Fixtures.temporaryFolder("callgraph-benchmark");
+
+        // Only keep the merged callgraph on disk, such that every lookup reads and decodes it.
+        Set<ResolvedRevision> revisions = Fixtures.resolvedRevisions(21, 42);
+        List<ResolvedRevision> ordered = new ArrayList<>(revisions);
+        dependent = ordered.remove(0);
+        dependencies = Set.copyOf(ordered);
+        List<String> coords = dependencies.stream().map(d -> String.format("%s:%s:%s", d.getGroupId(), d.getArtifactId(), d.version))
+                .collect(Collectors.toList());
+        coords.add(String.format("%s:%s:%s", dependent.getGroupId(), dependent.getArtifactId(), dependent.version));
+
+        MergedGraphCache cache = new MergedGraphCache(folder.resolve("cache"), Long.MAX_VALUE, 0);
+        cache.put(MergedGraphCache.key(coords), callgraph);
+        MergedCallGraphGenerator.useMergeCache(cache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        MergedCallGraphGenerator.useMergeCache(null);
+        Fixtures.delete(folder);
+    }
+
+    /**
+     * Format to export in, only a parameter of the export benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class Output {
+        @Param({"BINARY", "CSV"})
+        private CallGraphWriter.Format format;
+    }
+
+    @Benchmark
+    public long export(Output output) throws IOException {
+        CallGraphWriter.Format format = output.format;
+        long edges = CallGraphWriter.writeEdges(folder.resolve(CallGraphWriter.callgraphFileName(format)), callgraph.getGraph(), format);
+        return edges + CallGraphWriter.writeUris(folder.resolve(CallGraphWriter.urisFileName(format)), callgraph.getUris(), format);
+    }
+
+    @Benchmark
+    public MergedCallGraph mergeCacheLoad() throws Exception {
+        return MergedCallGraphGenerator.generateCallGraph(dependent, dependencies);
+    }
+
+}
@@ -0,0 +1,190 @@
+package research;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import eu.fasten.core.data.ArrayImmutableDirectedGraph;
+import eu.fasten.core.data.callableindex.GidGraph;
+import eu.fasten.core.data.callableindex.RocksDao;
+import eu.fasten.core.maven.data.ResolvedRevision;
+import eu.fasten.core.maven.data.Revision;
+import eu.fasten.core.maven.data.Scope;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+import org.rocksdb.RocksDBException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic fixtures for the benchmarks, generated from a seed so every run measures the same data without a database.
+ */
+final class Fixtures {
+
+    private static final String[] GROUP_WORDS = {"org", "com", "io", "apache", "google", "commons", "test", "junit", "mock", "util"};
+    private static final String[] ARTIFACT_WORDS = {"core", "api", "impl", "client", "assertj", "mockito", "common", "io", "lang", "test"};
+
+    private static final long NODES_PER_REVISION_SPAN = 1L << 24;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Method to generate packages in `groupId:artifactId:version` format, with about a tenth of testing frameworks.
+     */
+    static List<String> packages(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> packages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String groupId = String.format("%s.%s.g%d", pick(GROUP_WORDS, random), pick(GROUP_WORDS, random), random.nextInt(count));
+            String artifactId = String.format("%s-%s", pick(ARTIFACT_WORDS, random), pick(ARTIFACT_WORDS, random));
+            packages.add(String.format("%s:%s:%d.%d.%d", groupId, artifactId, random.nextInt(5), random.nextInt(20), random.nextInt(100)));
+        }
+        return packages;
+    }
+
+    /**
+     * Method to generate resolved revisions, as returned by the resolver.
+     */
+    static Set<ResolvedRevision> resolvedRevisions(int count, long seed) {
+        Set<ResolvedRevision> revisions = new ObjectLinkedOpenHashSet<>(count);
+        long id = 0;
+        for (String pkg : packages(count, seed)) {
+            String[] parts = pkg.split(":");
+            Revision revision = new Revision(id++, parts[0], parts[1], parts[2], new Timestamp(id));
+            revisions.add(new ResolvedRevision(revision, Scope.COMPILE));
+        }
+        return revisions;
+    }
+
+    /**
+     * Method to generate a merged callgraph with a power-law-like out-degree, where a fifth of the nodes is external.
+     *
+     * @param nodes         Number of nodes.
+     * @param averageDegree Average number of successors per node.
+     * @param seed          Seed of the generator.
+     */
+    static MergedCallGraph callgraph(int nodes, int averageDegree, long seed) {
+        Random random = new Random(seed);
+        var builder = new ArrayImmutableDirectedGraph.Builder();
+        BiMap<Long, String> uris = HashBiMap.create(nodes);
+        for (long node = 0; node < nodes; node++) {
+            if (node % 5 == 0) {
+                builder.addExternalNode(node);
+            } else {
+                builder.addInternalNode(node);
+            }
+            uris.put(node, String.format("fasten://mvn!g%d:a%d$1.0.%d/p%d/C%d.m%d()%%2Fjava.lang%%2FVoidType",
+                    node % 97, node % 31, node % 7, node % 13, node / 13, node));
+        }
+        for (long node = 0; node < nodes; node++) {
+            int degree = (int) Math.min(nodes - 1, Math.round(-Math.log(1.0 - random.nextDouble()) * averageDegree));
+            LongOpenHashSet successors = new LongOpenHashSet();
+            for (int i = 0; i < degree; i++) {
+                long successor = random.nextInt(nodes);
+                if (successor != node && successors.add(successor)) {
+                    builder.addArc(node, successor);
+                }
+            }
+        }
+        return new MergedCallGraph(builder.build(), uris);
+    }
+
+    /**
+     * Method to get the ID of a node of a synthetic callable index, every revision has its own range of node IDs.
+     */
+    static long nodeId(long revision, int node) {
+        return revision * NODES_PER_REVISION_SPAN + node;
+    }
+
+    /**
+     * Method to get the revision of a node of a synthetic callable index.
+     */
+    static long revisionOf(long nodeId) {
+        return nodeId / NODES_PER_REVISION_SPAN;
+    }
+
+    /**
+     * Method to get the partial URI of a node of a synthetic callable index, as stored in the callables table.
+     */
+    static String partialUri(long nodeId) {
+        return String.format("/p%d/C%d.m%d()%%2Fjava.lang%%2FVoidType", nodeId % 13, nodeId / 13, nodeId);
+    }
+
+    /**
+     * Method to fill a callable index with a callgraph per revision, stored under the ID of the revision. Four fifths of
+     * the calls stay within the revision, the others call internal nodes of the other revisions, which are the
+     * external nodes of its callgraph.
+     *
+     * @param folder        Folder to create the callable index in.
+     * @param revisions     Revisions to store a callgraph of.
+     * @param nodes         Number of internal nodes per revision.
+     * @param averageDegree Average number of calls per internal node.
+     * @param seed          Seed of the generator.
+     * @return Writable callable index, to be closed by the caller.
+     */
+    static RocksDao callableIndex(Path folder, List<ResolvedRevision> revisions, int nodes, int averageDegree, long seed) throws IOException, RocksDBException {
+        Random random = new Random(seed);
+        RocksDao dao = new RocksDao(folder.toString(), false);
+        for (ResolvedRevision revision : revisions) {
+            LinkedHashSet<Long> external = new LinkedHashSet<>();
+            List<List<Long>> edges = new ArrayList<>();
+            for (int node = 0; node < nodes; node++) {
+                int degree = (int) Math.round(-Math.log(1.0 - random.nextDouble()) * averageDegree);
+                for (int i = 0; i < degree; i++) {
+                    long target;
+                    if (revisions.size() > 1 && random.nextInt(5) == 0) {
+                        ResolvedRevision other = revisions.get(random.nextInt(revisions.size()));
+                        target = nodeId(other.id, random.nextInt(nodes));
+                        if (other.id != revision.id) {
+                            external.add(target);
+                        }
+                    } else {
+                        target = nodeId(revision.id, random.nextInt(nodes));
+                    }
+                    edges.add(List.of(nodeId(revision.id, node), target));
+                }
+            }
+
+            List<Long> ids = new ArrayList<>(nodes + external.size());
+            for (int node = 0; node < nodes; node++) {
+                ids.add(nodeId(revision.id, node));
+            }
+            ids.addAll(external);
+            dao.saveToRocksDb(new GidGraph(revision.id, revision.getGroupId() + ":" + revision.getArtifactId(),
+                    revision.version.toString(), ids, nodes, edges));
+        }
+        return dao;
+    }
+
+    /**
+     * Method to create an empty temporary folder.
+     */
+    static Path temporaryFolder(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix);
+    }
+
+    /**
+     * Method to delete a temporary folder with all its contents.
+     */
+    static void delete(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static String pick(String[] words, Random random) {
+        return words[random.nextInt(words.length)];
+    }
+
+}
@@ -0,0 +1,61 @@
+package research;
+
+import eu.fasten.core.maven.data.ResolvedRevision;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the filtering of resolved dependents and dependencies, and of parsing packages into revisions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    @Param({"100", "10000"})
+    private int revisions;
+
+    private Set<ResolvedRevision> resolved;
+    private List<String> packages;
+
+    @Setup
+    public void setup() {
+        resolved = Fixtures.resolvedRevisions(revisions, 42);
+        packages = Fixtures.packages(revisions, 42);
+    }
+
+    @Benchmark
+    public Set<ResolvedRevision> filterDependents() {
+        return MergedCallGraphGenerator.filterDependents(resolved);
+    }
+
+    @Benchmark
+    public Set<ResolvedRevision> filterDependencies() {
+        return MergedCallGraphGenerator.filterDependencies(resolved);
+    }
+
+    @Benchmark
+    public void revisionFromString(Blackhole blackhole) {
+        for (String pkg : packages) {
+            blackhole.consume(MergedCallGraphGenerator.revisionFromString(pkg));
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package research;
+
+import eu.fasten.core.data.callableindex.RocksDao;
+import eu.fasten.core.maven.data.ResolvedRevision;
+import eu.fasten.core.maven.data.Revision;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of merging the callgraph of a dependent with those of its dependencies, through the same path as a real
+ * run: the callgraphs are read from a temporary callable index filled with synthetic revisions, and the database is
+ * replaced by a {@link MockDatabase} that answers from the same revisions. The merge cache is not used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergeBenchmark {
+
+    @Param({"20"})
+    private int revisions;
+
+    @Param({"1000", "10000"})
+    private int nodes;
+
+    @Param({"8"})
+    private int averageDegree;
+
+    private Path folder;
+    private RocksDao callableIndex;
+    private Revision dependent;
+    private Set<ResolvedRevision> dependencies;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        folder = Fixtures.temporaryFolder("merge-benchmark");
+        List<ResolvedRevision> ordered = new ArrayList<>(Fixtures.resolvedRevisions(revisions, 42));
+        callableIndex = Fixtures.callableIndex(folder.resolve("callable-index"), ordered, nodes, averageDegree, 42);
+
+        MergedCallGraphGenerator.useMergeCache(null);
+        MergedCallGraphGenerator.useSources(callableIndex, MockDatabase.context(ordered, nodes));
+        dependent = ordered.remove(0);
+        dependencies = Set.copyOf(ordered);
+
+        // The mock database answers by matching the generated SQL, so check that the merge is not silently empty.
+        MergedCallGraph merged = merge();
+        if (merged.getGraph().numArcs() == 0 || merged.getUris().isEmpty()) {
+            throw new IllegalStateException(String.format("Merge of %d revisions has %d arcs and %d URIs",
+                    revisions, merged.getGraph().numArcs(), merged.getUris().size()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        MergedCallGraphGenerator.useSources(null, null);
+        callableIndex.close();
+        Fixtures.delete(folder);
+    }
+
+    @Benchmark
+    public MergedCallGraph merge() throws Exception {
+        return MergedCallGraphGenerator.generateCallGraph(dependent, dependencies);
+    }
+
+}
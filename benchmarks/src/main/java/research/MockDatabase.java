@@ -0,0 +1,159 @@
+package research;
+
+import eu.fasten.core.data.metadatadb.codegen.Public;
+import eu.fasten.core.maven.data.ResolvedRevision;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockExecuteContext;
+import org.jooq.tools.jdbc.MockResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the metadata database of the merge benchmark, answering every query from the synthetic revisions of a
+ * callable index built by {@link Fixtures#callableIndex}. A query on package versions returns the revisions whose name
+ * and version are bound, a query on callables returns a row for every bound node ID, and any other query returns no
+ * rows. The columns of every answer are the ones the query selects, looked up in the generated schema.
+ */
+final class MockDatabase implements MockDataProvider {
+
+    private static final Pattern COLUMN = Pattern.compile("\"public\"\\.\"(\\w+)\"\\.\"(\\w+)\"");
+    private static final Pattern TABLE = Pattern.compile("\"public\"\\.\"(\\w+)\"");
+
+    private final DSLContext create = DSL.using(SQLDialect.POSTGRES);
+    private final Map<Long, ResolvedRevision> revisions = new HashMap<>();
+    private final int nodes;
+
+    private MockDatabase(Collection<ResolvedRevision> revisions, int nodes) {
+        for (ResolvedRevision revision : revisions) {
+            this.revisions.put(revision.id, revision);
+        }
+        this.nodes = nodes;
+    }
+
+    /**
+     * Method to create a database context that is answered from the synthetic revisions.
+     *
+     * @param revisions Revisions stored in the callable index.
+     * @param nodes     Number of internal nodes per revision.
+     */
+    static DSLContext context(Collection<ResolvedRevision> revisions, int nodes) {
+        return DSL.using(new MockConnection(new MockDatabase(revisions, nodes)), SQLDialect.POSTGRES);
+    }
+
+    @Override
+    public MockResult[] execute(MockExecuteContext context) {
+        String sql = context.sql();
+        String lower = sql.toLowerCase(Locale.ROOT);
+        if (!lower.trim().startsWith("select")) {
+            return new MockResult[]{new MockResult(0, null)};
+        }
+
+        // 1. Answer with the selected columns, in the order they are selected.
+        int from = lower.indexOf(" from ");
+        List<Field<?>> fields = new ArrayList<>();
+        Matcher column = COLUMN.matcher(from < 0 ? sql : sql.substring(0, from));
+        while (column.find()) {
+            Table<?> table = Public.PUBLIC.getTable(column.group(1));
+            Field<?> field = Objects.isNull(table) ? null : table.field(column.group(2));
+            if (Objects.nonNull(field)) {
+                fields.add(field);
+            }
+        }
+        Result<Record> result = create.newResult(fields.toArray(new Field<?>[0]));
+
+        // 2. Add a row for every callable or package version the query binds.
+        Set<String> tables = new HashSet<>();
+        Matcher table = TABLE.matcher(from < 0 ? "" : sql.substring(from));
+        while (table.find()) {
+            tables.add(table.group(1));
+        }
+        List<Object> bindings = flatten(context.bindings());
+        if (tables.contains("callables")) {
+            for (Object binding : bindings) {
+                if (binding instanceof Long && isNode((Long) binding)) {
+                    result.add(row(fields, (Long) binding, revisions.get(Fixtures.revisionOf((Long) binding))));
+                }
+            }
+        } else if (tables.contains("package_versions") || tables.contains("packages")) {
+            for (ResolvedRevision revision : revisions.values()) {
+                if (bindings.contains(revision.getGroupId() + ":" + revision.getArtifactId()) && bindings.contains(revision.version.toString())) {
+                    result.add(row(fields, null, revision));
+                }
+            }
+        }
+        return new MockResult[]{new MockResult(result.size(), result)};
+    }
+
+    private boolean isNode(long id) {
+        return revisions.containsKey(Fixtures.revisionOf(id)) && id - Fixtures.nodeId(Fixtures.revisionOf(id), 0) < nodes;
+    }
+
+    private Record row(List<Field<?>> fields, Long node, ResolvedRevision revision) {
+        Record record = create.newRecord(fields.toArray(new Field<?>[0]));
+        for (Field<?> field : fields) {
+            set(record, field, valueOf(field, node, revision));
+        }
+        return record;
+    }
+
+    private static Object valueOf(Field<?> field, Long node, ResolvedRevision revision) {
+        String[] name = field.getQualifiedName().getName();
+        String table = name.length > 1 ? name[name.length - 2] : "";
+        switch (field.getName()) {
+            case "id":
+                return "callables".equals(table) ? node : revision.id;
+            case "fasten_uri":
+                return Objects.isNull(node) ? null : Fixtures.partialUri(node);
+            case "is_internal_call":
+                return Boolean.TRUE;
+            case "module_id":
+            case "package_id":
+            case "package_version_id":
+                return revision.id;
+            case "package_name":
+                return revision.getGroupId() + ":" + revision.getArtifactId();
+            case "version":
+                return revision.version.toString();
+            default:
+                return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void set(Record record, Field<?> field, Object value) {
+        record.set((Field<Object>) field, field.getDataType().convert(value));
+    }
+
+    private static List<Object> flatten(Object[] bindings) {
+        List<Object> values = new ArrayList<>();
+        for (Object binding : bindings) {
+            if (binding instanceof Object[]) {
+                values.addAll(flatten((Object[]) binding));
+            } else if (binding instanceof Collection) {
+                values.addAll(flatten(((Collection<?>) binding).toArray()));
+            } else {
+                values.add(binding);
+            }
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,67 @@
+package research;
+
+import eu.fasten.core.maven.data.Revision;
+import org.apache.commons.math3.distribution.EnumeratedDistribution;
+import org.apache.commons.math3.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of drawing the largest sample set (99% confidence, 3% margin of error) from weighted candidates, both by
+ * repeated draws from a distribution and by keeping the smallest Efraimidis-Spirakis keys in a bounded heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplingBenchmark {
+
+    private static final int SAMPLE_SIZE = 1831;
+
+    @Param({"10000", "100000"})
+    private int candidates;
+
+    private List<Pair<Revision, Double>> dependentInformation;
+    private EnumeratedDistribution<Revision> distribution;
+
+    @Setup
+    public void setup() {
+        // Dependent counts follow a heavy-tailed distribution, most packages have few dependents.
+        Random random = new Random(42);
+        dependentInformation = new ArrayList<>(candidates);
+        for (String pkg : Fixtures.packages(candidates, 42)) {
+            double dependents = Math.floor(Math.pow(1.0 - random.nextDouble(), -1.5)) - 1;
+            dependentInformation.add(Pair.create(MergedCallGraphGenerator.revisionFromString(pkg), dependents));
+        }
+        distribution = new EnumeratedDistribution<>(dependentInformation);
+        distribution.reseedRandomGenerator(42);
+    }
+
+    @Benchmark
+    public Set<Revision> generateSampleSet() {
+        return ArtefactSelection.drawSampleSet(distribution, SAMPLE_SIZE);
+    }
+
+    @Benchmark
+    public List<Revision> generateSampleSets() {
+        return ArtefactSelection.weightedSamples(dependentInformation, new Random(42), new int[]{SAMPLE_SIZE}).get(0);
+    }
+
+}
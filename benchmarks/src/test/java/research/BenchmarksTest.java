@@ -0,0 +1,38 @@
+package research;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every benchmark once in the same JVM, like `-f 0 -wi 0 -i 1`, such that a benchmark that fails in its setup,
+ * for example a merge that gets no rows from the mock database, fails the build.
+ */
+class BenchmarksTest {
+
+    @Test
+    void everyBenchmarkRunsOnce() throws Exception {
+        Options options = new OptionsBuilder()
+                .forks(0)
+                .warmupIterations(0)
+                .measurementIterations(1)
+                .measurementTime(TimeValue.milliseconds(100))
+                .param("nodes", "1000")
+                .shouldFailOnError(true)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        assertFalse(results.isEmpty());
+        for (RunResult result : results) {
+            assertTrue(result.getPrimaryResult().getSampleCount() > 0, result.getParams().getBenchmark());
+        }
+    }
+
+}
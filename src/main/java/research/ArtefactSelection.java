@@ -2,25 +2,26 @@ package research;
 
 import eu.fasten.core.data.metadatadb.codegen.tables.PackageVersions;
 import eu.fasten.core.data.metadatadb.codegen.tables.Packages;
-import eu.fasten.core.dbconnectors.PostgresConnector;
 import eu.fasten.core.maven.data.Revision;
 import eu.fasten.core.maven.resolution.*;
 import org.apache.commons.math3.util.Pair;
 import org.apache.commons.math3.distribution.EnumeratedDistribution;
 import org.jooq.DSLContext;
 import org.jooq.Record4;
+import org.jooq.impl.DSL;
 import picocli.CommandLine;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Comparator;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class ArtefactSelection implements Callable<Integer> {
@@ -34,29 +35,97 @@ public class ArtefactSelection implements Callable<Integer> {
     @CommandLine.Option(names = {"-tf", "--temporary-folder"}, description = "File path to temporary folder")
     protected static String temporaryFolderUrl;
 
-    private static IMavenResolver resolver;
+    @CommandLine.Option(names = {"-rc", "--resolver-cache"}, description = "File path to folder to persist resolver results in, shared with CallgraphGeneration")
+    protected static String resolverCacheUrl;
+
+    @CommandLine.Option(names = {"-p", "--threads"}, description = "Number of threads to count dependents on, defaults to the number of cores")
+    private static int threads = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(names = {"--streaming"}, description = "Stream the time window from the database and draw all samples in a single pass")
+    private static boolean streaming;
+
+    @CommandLine.Option(names = {"--seed"}, description = "Seed for the random sampling, for reproducible samples")
+    private static Long seed;
+
+    @CommandLine.Mixin
+    private DatabaseOptions databaseOptions;
+
+    private static CachingResolver resolver;
     private static DSLContext context;
 
-    static {
-        try {
-            context = PostgresConnector.getDSLContext("jdbc:postgresql://localhost:5432/fasten_java", "fasten", false);
-
-            String tempDirLoc = Objects.isNull(CallgraphGeneration.temporaryFolderUrl)
-                    ? String.format("%s/tmp", System.getProperty("user.dir"))
-                    : CallgraphGeneration.temporaryFolderUrl;
-            Files.createDirectories(Paths.get(tempDirLoc));
-            resolver = new MavenResolverIO(context, new File(tempDirLoc)).loadResolver();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    /**
+     * Method to set up the database context and resolver, done after parsing so the options are applied.
+     * The resolver is only loaded once a dependent count is not found in the resolver cache. Every package is only
+     * counted once and its dependents are dropped right after, so no results are kept in memory.
+     */
+    private void setup() throws Exception {
+        databaseOptions.apply();
+        context = Database.getContext();
+
+        Path temporaryFolder = ResolverLoader.temporaryFolder(temporaryFolderUrl);
+        resolver = new CachingResolver(() -> ResolverLoader.load(context, temporaryFolder),
+                Objects.isNull(resolverCacheUrl) ? null : Paths.get(resolverCacheUrl), 0);
     }
 
     @Override
     public Integer call() throws Exception {
+        setup();
+
         // 1. Select packages from 1st of October to 31st of March.
         Timestamp begin = Timestamp.from(new SimpleDateFormat("dd/MM/yyyy").parse(startDate).toInstant());
         Timestamp end = Timestamp.from(new SimpleDateFormat("dd/MM/yyyy").parse(endDate).toInstant());
 
+        List<Revision> newResult = streaming ? selectCandidatesLazily(begin, end) : selectCandidates(begin, end);
+
+        // 3. Calculate the number of dependents for every package, traversing the dependency graph on all threads.
+        ResolverConfig config = ResolverConfig.resolve().depth(ResolverDepth.TRANSITIVE).alwaysIncludeProvided(false);
+        List<Pair<Revision, Double>> dependentInformation = countDependents(newResult, config, threads);
+
+        // 4. Store dependent counts.
+        try (PrintWriter out = new PrintWriter("dependents-count.txt")) {
+            dependentInformation.stream()
+                    .sorted(Comparator.comparing(Pair::getSecond))
+                    .forEach(p -> out.println(String.format("%s:%s:%s,%d", p.getFirst().getGroupId(), p.getFirst().getArtifactId(), p.getFirst().version, p.getSecond().intValue())));
+        }
+
+        if (streaming) {
+            // 5. and 6. Sample all confidence intervals independently in a single weighted pass, and store in .txt files.
+            generateSampleSets(dependentInformation, Objects.isNull(seed) ? new Random() : new Random(seed), new int[][]{
+                    {95, 5, 384},  // 95% confidence, 5% margin of error.
+                    {95, 3, 1066}, // 95% confidence, 3% margin of error.
+                    {99, 5, 660},  // 99% confidence, 5% margin of error.
+                    {99, 3, 1831}  // 99% confidence, 3% margin of error.
+            });
+        } else {
+            // 5. Randomly sample from the dataset, where the weight is the number of dependents.
+            EnumeratedDistribution<Revision> distribution = new EnumeratedDistribution<>(dependentInformation);
+            if (Objects.nonNull(seed)) {
+                distribution.reseedRandomGenerator(seed);
+            }
+
+            // 6. Compute this for all confidence intervals and store in .txt files.
+            generateSampleSet(distribution, 95, 5, 384);  // 95% confidence, 5% margin of error.
+            generateSampleSet(distribution, 95, 3, 1066); // 95% confidence, 3% margin of error.
+            generateSampleSet(distribution, 99, 5, 660);  // 99% confidence, 5% margin of error.
+            generateSampleSet(distribution, 99, 3, 1831); // 99% confidence, 3% margin of error.
+        }
+
+        System.out.println(resolver.statistics());
+        System.out.println(Database.statistics());
+        resolver.close();
+        Database.close();
+        return 0;
+    }
+
+    /**
+     * Method to select the oldest version of every non-testing package released in a time window, loading the whole
+     * window into memory.
+     *
+     * @param begin Start of the time window.
+     * @param end   End of the time window.
+     * @return Candidate packages, oldest first.
+     */
+    private static List<Revision> selectCandidates(Timestamp begin, Timestamp end) {
         var result = context.select(PackageVersions.PACKAGE_VERSIONS.ID, Packages.PACKAGES.PACKAGE_NAME, PackageVersions.PACKAGE_VERSIONS.VERSION, PackageVersions.PACKAGE_VERSIONS.CREATED_AT)
                 .from(Packages.PACKAGES, PackageVersions.PACKAGE_VERSIONS)
                 .where(Packages.PACKAGES.ID.eq(PackageVersions.PACKAGE_VERSIONS.PACKAGE_ID))
@@ -78,58 +147,179 @@ public class ArtefactSelection implements Callable<Integer> {
                 .map(r -> new Revision(r.value1(), r.value2().split(":")[0], r.value2().split(":")[1], r.value3(), r.value4()))
                 .collect(Collectors.toList());
         System.out.println("Filtered " + (newResult.size() - sampleResult.size()) + " non-unique artefacts.");
+        return newResult;
+    }
 
-        // 3. Calculate the number of dependents for every package.
-        ResolverConfig config = ResolverConfig.resolve().depth(ResolverDepth.TRANSITIVE).alwaysIncludeProvided(false);
-        List<Pair<Revision, Double>> dependentInformation = newResult.stream().map(r -> {
-            try {
-                HashSet<String> uniqueDependents = new HashSet<>();
-                var dependents = resolver.resolveDependents(r, config).stream()
-                        .filter(_r -> uniqueDependents.add(_r.getGroupId()))
-                        .collect(Collectors.toList());
-
-                return Pair.create(r, (double) dependents.size());
-            } catch (Exception e) {
-                return Pair.create(r, 0.0);
+    /**
+     * Method to select the oldest version of every non-testing package released in a time window, streaming the
+     * window from the database in release order and filtering every row as it arrives.
+     *
+     * @param begin Start of the time window.
+     * @param end   End of the time window.
+     * @return Candidate packages, oldest first.
+     */
+    private static List<Revision> selectCandidatesLazily(Timestamp begin, Timestamp end) {
+        // PostgreSQL only streams a result set with a cursor inside a transaction.
+        return context.transactionResult(configuration -> {
+            Set<String> packages = new HashSet<>();
+            List<Revision> candidates = new ArrayList<>();
+            int retrieved = 0;
+            int testing = 0;
+
+            try (var cursor = DSL.using(configuration)
+                    .select(PackageVersions.PACKAGE_VERSIONS.ID, Packages.PACKAGES.PACKAGE_NAME, PackageVersions.PACKAGE_VERSIONS.VERSION, PackageVersions.PACKAGE_VERSIONS.CREATED_AT)
+                    .from(Packages.PACKAGES, PackageVersions.PACKAGE_VERSIONS)
+                    .where(Packages.PACKAGES.ID.eq(PackageVersions.PACKAGE_VERSIONS.PACKAGE_ID))
+                    .and(PackageVersions.PACKAGE_VERSIONS.CREATED_AT.greaterOrEqual(begin))
+                    .and(PackageVersions.PACKAGE_VERSIONS.CREATED_AT.lessOrEqual(end))
+                    .orderBy(PackageVersions.PACKAGE_VERSIONS.CREATED_AT)
+                    .fetchSize(10000)
+                    .fetchLazy()) {
+                for (var r : cursor) {
+                    retrieved++;
+                    if (List.of("test", "junit", "mock", "assertj").stream().anyMatch(r.value2()::contains)) {
+                        testing++;
+                        continue;
+                    }
+                    String[] name = r.value2().split(":");
+                    if (packages.add(name[0])) {
+                        candidates.add(new Revision(r.value1(), name[0], name[1], r.value3(), r.value4()));
+                    }
+                }
             }
-        }).collect(Collectors.toList());
 
-        // 4. Store dependent counts.
-        try (PrintWriter out = new PrintWriter("dependents-count.txt")) {
-            dependentInformation.stream()
-                    .sorted(Comparator.comparing(Pair::getSecond))
-                    .forEach(p -> out.println(String.format("%s:%s:%s,%d", p.getFirst().getGroupId(), p.getFirst().getArtifactId(), p.getFirst().version, p.getSecond().intValue())));
+            System.out.println("Retrieved " + retrieved + " artefacts from the database.");
+            System.out.println("Filtered " + testing + " testing artefacts.");
+            System.out.println("Filtered " + (candidates.size() - (retrieved - testing)) + " non-unique artefacts.");
+            return candidates;
+        });
+    }
+
+    /**
+     * Method to count the number of distinct dependent groupIds of every package, in parallel.
+     *
+     * @param revisions Packages to count the dependents of.
+     * @param config    Configuration for dependent resolution.
+     * @param threads   Number of threads to resolve dependents on.
+     * @return Pair of package and number of dependents, in the same order as the packages.
+     */
+    private static List<Pair<Revision, Double>> countDependents(List<Revision> revisions, ResolverConfig config, int threads) throws Exception {
+        AtomicInteger counted = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> revisions.parallelStream().map(r -> {
+                double count;
+                try {
+                    count = resolver.resolveDependents(r, config).stream().map(Revision::getGroupId).distinct().count();
+                } catch (Exception e) {
+                    count = 0.0;
+                }
+
+                int done = counted.incrementAndGet();
+                if (done % 1000 == 0) {
+                    System.out.println("Counted dependents of " + done + "/" + revisions.size() + " artefacts.");
+                }
+                return Pair.create(r, count);
+            }).collect(Collectors.toList())).get();
+        } finally {
+            pool.shutdown();
         }
+    }
 
-        // 5. Randomly sample from the dataset, where the weight is the number of dependents.
-        EnumeratedDistribution<Revision> distribution = new EnumeratedDistribution<>(dependentInformation);
+    /**
+     * Method to draw independent weighted samples without replacement for several sample sizes in a single pass.
+     * Every package gets an Efraimidis-Spirakis key `-ln(u) / weight` per sample; the sample of size k consists of the
+     * k packages with the smallest keys of that sample.
+     *
+     * @param dependentInformation Pair of package and its weight, the number of dependents.
+     * @param random               Source of randomness.
+     * @param sampleSets           Confidence, margin of error and sample size of every sample set to generate.
+     */
+    private static void generateSampleSets(List<Pair<Revision, Double>> dependentInformation, Random random, int[][] sampleSets) throws FileNotFoundException {
+        int[] sampleSizes = Arrays.stream(sampleSets).mapToInt(sampleSet -> sampleSet[2]).toArray();
+        List<List<Revision>> samples = weightedSamples(dependentInformation, random, sampleSizes);
 
-        // 6. Compute this for all confidence intervals and store in .txt files.
-        generateSampleSet(distribution, 95, 5, 384);  // 95% confidence, 5% margin of error.
-        generateSampleSet(distribution, 95, 3, 1066); // 95% confidence, 3% margin of error.
-        generateSampleSet(distribution, 99, 5, 660);  // 99% confidence, 5% margin of error.
-        generateSampleSet(distribution, 99, 3, 1831); // 99% confidence, 3% margin of error.
+        for (int i = 0; i < sampleSets.length; i++) {
+            int conf = sampleSets[i][0], error = sampleSets[i][1], sampleSize = sampleSets[i][2];
+            if (samples.get(i).size() < sampleSize) {
+                System.out.println("Not enough artefacts available for sample size: " + sampleSize);
+                continue;
+            }
 
-        return 0;
+            String output = samples.get(i).stream()
+                    .map(r -> String.format("%s:%s:%s", r.getGroupId(), r.getArtifactId(), r.version)).collect(Collectors.joining("\n"));
+            try (PrintWriter out = new PrintWriter(String.format("artefacts_to_analyse-%d-%d.txt", conf, error))) {
+                out.println(output);
+            }
+        }
+    }
+
+    /**
+     * Method to draw an independent weighted sample for every sample size, keeping the packages with the smallest
+     * Efraimidis-Spirakis keys `-ln(u) / weight` of every sample in a bounded heap.
+     *
+     * @param dependentInformation Pair of package and its weight, the number of dependents.
+     * @param random               Source of randomness.
+     * @param sampleSizes          Size of every sample.
+     * @return Packages of every sample in the order they are drawn, smallest key first; a sample is smaller than its
+     * size if not enough packages have dependents.
+     */
+    static List<List<Revision>> weightedSamples(List<Pair<Revision, Double>> dependentInformation, Random random, int[] sampleSizes) {
+        List<PriorityQueue<Pair<Revision, Double>>> heaps = new ArrayList<>();
+        for (int i = 0; i < sampleSizes.length; i++) {
+            heaps.add(new PriorityQueue<>(Comparator.comparing((Pair<Revision, Double> p) -> p.getSecond()).reversed()));
+        }
+
+        for (Pair<Revision, Double> p : dependentInformation) {
+            // Packages without dependents can never be drawn.
+            if (p.getSecond() <= 0) {
+                continue;
+            }
+            for (int i = 0; i < sampleSizes.length; i++) {
+                double key = -Math.log(1.0 - random.nextDouble()) / p.getSecond();
+                PriorityQueue<Pair<Revision, Double>> heap = heaps.get(i);
+                if (heap.size() < sampleSizes[i]) {
+                    heap.add(Pair.create(p.getFirst(), key));
+                } else if (sampleSizes[i] > 0 && key < heap.peek().getSecond()) {
+                    heap.poll();
+                    heap.add(Pair.create(p.getFirst(), key));
+                }
+            }
+        }
+
+        return heaps.stream()
+                .map(heap -> heap.stream().sorted(Comparator.comparing(Pair::getSecond)).map(Pair::getFirst).collect(Collectors.toList()))
+                .collect(Collectors.toList());
     }
 
     private static void generateSampleSet(EnumeratedDistribution<Revision> distribution, int conf, int error, int sampleSize) throws FileNotFoundException {
-        Set<Revision> sampleSet = new HashSet<>();
         if (distribution.getPmf().size() < sampleSize) {
             System.out.println("Not enough artefacts available for sample size: " + sampleSize);
             return;
         }
 
-        while (sampleSet.size() < sampleSize) {
-            sampleSet.add(distribution.sample());
-        }
-
+        Set<Revision> sampleSet = drawSampleSet(distribution, sampleSize);
         String output = sampleSet.stream().map(r -> String.format("%s:%s:%s", r.getGroupId(), r.getArtifactId(), r.version)).collect(Collectors.joining("\n"));
         try (PrintWriter out = new PrintWriter(String.format("artefacts_to_analyse-%d-%d.txt", conf, error))) {
             out.println(output);
         }
     }
 
+    /**
+     * Method to draw distinct packages from a weighted distribution until the sample is complete.
+     *
+     * @param distribution Distribution of packages, weighted by their number of dependents.
+     * @param sampleSize   Number of distinct packages to draw, at most the size of the distribution.
+     * @return Sampled packages.
+     */
+    static Set<Revision> drawSampleSet(EnumeratedDistribution<Revision> distribution, int sampleSize) {
+        Set<Revision> sampleSet = new HashSet<>();
+        while (sampleSet.size() < sampleSize) {
+            sampleSet.add(distribution.sample());
+        }
+        return sampleSet;
+    }
+
     public static void main(String[] args) throws Exception {
         int exitCode = new CommandLine(new ArtefactSelection()).execute(args);
         System.exit(exitCode);
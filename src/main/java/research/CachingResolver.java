@@ -0,0 +1,196 @@
+package research;
+
+import eu.fasten.core.maven.data.ResolvedRevision;
+import eu.fasten.core.maven.data.Revision;
+import eu.fasten.core.maven.data.Scope;
+import eu.fasten.core.maven.resolution.IMavenResolver;
+import eu.fasten.core.maven.resolution.ResolverConfig;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoizes the results of an {@link IMavenResolver}, keyed by the revision and the resolver configuration.
+ * Results are kept in an in-memory tier, bounded by the total number of revisions it holds, and, if a folder is given,
+ * persisted in a local RocksDB store, such that `ArtefactSelection` and `CallgraphGeneration` can reuse each other's
+ * resolutions between runs.
+ * The resolver itself is only loaded on the first cache miss, so a run that is served from the store never loads it.
+ * <p>
+ * The `resolveAt` timestamp of the configuration is not part of the key, as it defaults to the current time.
+ */
+public class CachingResolver implements AutoCloseable {
+
+    private final Callable<IMavenResolver> loader;
+    private volatile IMavenResolver resolver;
+    private final RocksDB store;
+    private final Map<String, Set<ResolvedRevision>> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final long memoryRevisions;
+    private long heldRevisions;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param loader          Loader of the resolver to memoize, called at most once.
+     * @param folder          Folder of the persistent store, or null to only cache in memory.
+     * @param memoryRevisions Maximum number of revisions in all results kept in memory, 0 to not keep any.
+     */
+    public CachingResolver(Callable<IMavenResolver> loader, Path folder, long memoryRevisions) throws IOException, RocksDBException {
+        this.loader = loader;
+        this.memoryRevisions = memoryRevisions;
+
+        if (Objects.isNull(folder)) {
+            this.store = null;
+        } else {
+            Files.createDirectories(folder);
+            RocksDB.loadLibrary();
+            this.store = RocksDB.open(new Options().setCreateIfMissing(true), folder.toString());
+        }
+    }
+
+    /**
+     * Method to resolve the dependents of a revision.
+     */
+    public Set<ResolvedRevision> resolveDependents(Revision revision, ResolverConfig config) throws Exception {
+        return resolve(key("dependents", revision, config), () -> resolver().resolveDependents(revision, config));
+    }
+
+    /**
+     * Method to resolve the dependencies of a revision, using the default configuration of the resolver.
+     */
+    public Set<ResolvedRevision> resolveDependencies(Revision revision) throws Exception {
+        return resolve(key("dependencies", revision, null), () -> resolver().resolveDependencies(revision));
+    }
+
+    /**
+     * Method to summarise the hit and miss counts of the cache.
+     *
+     * @return Human-readable summary of the statistics.
+     */
+    public String statistics() {
+        return String.format("Resolver cache: %d memory hits, %d store hits, %d misses.", memoryHits.get(), storeHits.get(), misses.get());
+    }
+
+    @Override
+    public void close() {
+        if (Objects.nonNull(store)) {
+            store.close();
+        }
+    }
+
+    private IMavenResolver resolver() throws Exception {
+        if (Objects.isNull(resolver)) {
+            synchronized (this) {
+                if (Objects.isNull(resolver)) {
+                    resolver = loader.call();
+                }
+            }
+        }
+        return resolver;
+    }
+
+    @FunctionalInterface
+    private interface Resolution {
+        Set<ResolvedRevision> resolve() throws Exception;
+    }
+
+    private Set<ResolvedRevision> resolve(String key, Resolution resolution) throws Exception {
+        Set<ResolvedRevision> result;
+        synchronized (memory) {
+            result = memory.get(key);
+        }
+        if (Objects.nonNull(result)) {
+            memoryHits.incrementAndGet();
+            return result;
+        }
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] stored = Objects.isNull(store) ? null : store.get(keyBytes);
+        if (Objects.nonNull(stored)) {
+            storeHits.incrementAndGet();
+            result = decode(stored);
+        } else {
+            misses.incrementAndGet();
+            result = Collections.unmodifiableSet(new ObjectLinkedOpenHashSet<>(resolution.resolve()));
+            if (Objects.nonNull(store)) {
+                store.put(keyBytes, encode(result));
+            }
+        }
+        remember(key, result);
+        return result;
+    }
+
+    /**
+     * Method to keep a result in memory, evicting the least recently used results until the bound is met again.
+     * Every result counts as one more than its size, such that empty results are bounded as well.
+     */
+    private void remember(String key, Set<ResolvedRevision> result) {
+        if (result.size() + 1L > memoryRevisions) {
+            return;
+        }
+        synchronized (memory) {
+            Set<ResolvedRevision> replaced = memory.put(key, result);
+            heldRevisions += result.size() + 1L - (Objects.isNull(replaced) ? 0 : replaced.size() + 1L);
+            for (Iterator<Set<ResolvedRevision>> eldest = memory.values().iterator(); heldRevisions > memoryRevisions; ) {
+                heldRevisions -= eldest.next().size() + 1L;
+                eldest.remove();
+            }
+        }
+    }
+
+    private static String key(String kind, Revision revision, ResolverConfig config) {
+        String configuration = Objects.isNull(config)
+                ? "default"
+                : String.format("%s,%s,%b,%b", config.depth, config.scope, config.alwaysIncludeProvided, config.alwaysIncludeOptional);
+        return String.format("%s|%s:%s:%s|%s", kind, revision.getGroupId(), revision.getArtifactId(), revision.version, configuration);
+    }
+
+    private static byte[] encode(Set<ResolvedRevision> revisions) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(revisions.size());
+            for (ResolvedRevision r : revisions) {
+                out.writeLong(r.id);
+                out.writeUTF(r.getGroupId());
+                out.writeUTF(r.getArtifactId());
+                out.writeUTF(r.version.toString());
+                out.writeLong(Objects.isNull(r.createdAt) ? -1 : r.createdAt.getTime());
+                out.writeUTF(r.scope.name());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Set<ResolvedRevision> decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int size = in.readInt();
+            Set<ResolvedRevision> revisions = new ObjectLinkedOpenHashSet<>(size);
+            for (int i = 0; i < size; i++) {
+                Revision revision = new Revision(in.readLong(), in.readUTF(), in.readUTF(), in.readUTF(), new Timestamp(in.readLong()));
+                revisions.add(new ResolvedRevision(revision, Scope.valueOf(in.readUTF())));
+            }
+            return Collections.unmodifiableSet(revisions);
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package research;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the binary callgraph files written by {@link CallGraphWriter} through a memory mapping.
+ */
+public final class CallGraphReader {
+
+    @FunctionalInterface
+    public interface EdgeConsumer {
+        void accept(long source, long target);
+    }
+
+    @FunctionalInterface
+    public interface UriConsumer {
+        void accept(long id, String uri);
+    }
+
+    private CallGraphReader() {
+    }
+
+    /**
+     * Method to read the number of edges of a binary edge file without decoding it.
+     */
+    public static long countEdges(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path, CallGraphWriter.EDGES_MAGIC);
+        buffer.getLong();
+        return buffer.getLong();
+    }
+
+    /**
+     * Method to visit every edge of a binary edge file, in ascending order of source and target.
+     */
+    public static void readEdges(Path path, EdgeConsumer consumer) throws IOException {
+        MappedByteBuffer buffer = map(path, CallGraphWriter.EDGES_MAGIC);
+        long sources = buffer.getLong();
+        buffer.getLong();
+
+        long source = 0;
+        for (long i = 0; i < sources; i++) {
+            source += VarInts.read(buffer);
+            long target = 0;
+            for (long j = VarInts.read(buffer); j > 0; j--) {
+                target += VarInts.read(buffer);
+                consumer.accept(source, target);
+            }
+        }
+    }
+
+    /**
+     * Method to visit every entry of a binary URI file, in ascending order of ID.
+     */
+    public static void readUris(Path path, UriConsumer consumer) throws IOException {
+        MappedByteBuffer buffer = map(path, CallGraphWriter.URIS_MAGIC);
+        long count = buffer.getLong();
+
+        long id = 0;
+        byte[] bytes = new byte[256];
+        for (long i = 0; i < count; i++) {
+            id += VarInts.read(buffer);
+            int length = (int) VarInts.read(buffer);
+            if (bytes.length < length) {
+                bytes = new byte[length];
+            }
+            buffer.get(bytes, 0, length);
+            consumer.accept(id, new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, int magic) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s is too large to be memory mapped", path));
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != magic) {
+                throw new IOException(String.format("%s is not a binary callgraph file", path));
+            }
+            return buffer;
+        }
+    }
+
+}
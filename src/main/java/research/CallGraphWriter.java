@@ -0,0 +1,241 @@
+package research;
+
+import eu.fasten.core.data.DirectedGraph;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * Streams merged callgraphs to disk, either as CSV or in a compact binary format.
+ * <p>
+ * Binary edge file (`callgraph.bin`): magic `CGB1`, the number of sources and edges as two longs, followed by every
+ * source with outgoing edges in ascending order as `delta(source) count target(0) delta(target(1)) ...` varints.
+ * <p>
+ * Binary URI file (`uris.bin`): magic `URI1`, the number of URIs as a long, followed by the IDs in ascending order as
+ * `delta(id) length utf8-bytes` entries.
+ * <p>
+ * Both are read back by {@link CallGraphReader}, which memory-maps the files.
+ */
+public final class CallGraphWriter {
+
+    public enum Format { BINARY, CSV }
+
+    static final int EDGES_MAGIC = 0x43474231; // "CGB1"
+    static final int URIS_MAGIC = 0x55524931;  // "URI1"
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CallGraphWriter() {
+    }
+
+    /**
+     * Method to get the name of the edge file in the given format.
+     */
+    public static String callgraphFileName(Format format) {
+        return format == Format.BINARY ? "callgraph.bin" : "callgraph.csv";
+    }
+
+    /**
+     * Method to get the name of the URI file in the given format.
+     */
+    public static String urisFileName(Format format) {
+        return format == Format.BINARY ? "uris.bin" : "uris.csv";
+    }
+
+    /**
+     * Method to write all edges of a callgraph. The file only appears once it has been written completely.
+     *
+     * @return Number of bytes written.
+     */
+    public static long writeEdges(Path path, DirectedGraph graph, Format format) throws IOException {
+        Path temporary = temporaryFileOf(path);
+        long bytes = format == Format.BINARY ? writeBinaryEdges(temporary, graph) : writeCsvEdges(temporary, graph);
+        publish(temporary, path);
+        return bytes;
+    }
+
+    /**
+     * Method to write a mapping of IDs to URIs. The file only appears once it has been written completely.
+     *
+     * @return Number of bytes written.
+     */
+    public static long writeUris(Path path, Map<Long, String> uris, Format format) throws IOException {
+        return writeUris(path, uris.keySet().stream().mapToLong(Long::longValue).sorted().toArray(), uris::get, format);
+    }
+
+    /**
+     * Method to write the URIs of a sorted array of IDs, looking every URI up while it is written.
+     * The file only appears once it has been written completely.
+     *
+     * @param ids   IDs in ascending order.
+     * @param uriOf Lookup of the URI of an ID.
+     * @return Number of bytes written.
+     */
+    public static long writeUris(Path path, long[] ids, LongFunction<String> uriOf, Format format) throws IOException {
+        Path temporary = temporaryFileOf(path);
+        long bytes = format == Format.BINARY ? writeBinaryUris(temporary, ids, uriOf) : writeCsvUris(temporary, ids, uriOf);
+        publish(temporary, path);
+        return bytes;
+    }
+
+    /**
+     * Method to get the temporary file a file is written to before it is published, creating its folder if needed.
+     */
+    static Path temporaryFileOf(Path path) throws IOException {
+        Path folder = path.toAbsolutePath().getParent();
+        if (!Files.isDirectory(folder)) {
+            Path existing = folder;
+            while (!Files.isDirectory(existing)) {
+                existing = existing.getParent();
+            }
+            Files.createDirectories(folder);
+            // The entries of the new folders have to be durable as well, or the published file disappears with them.
+            for (Path created = folder; !created.equals(existing); created = created.getParent()) {
+                syncFolder(created.getParent());
+            }
+        }
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    /**
+     * Method to atomically replace a file by its completely written temporary file.
+     * The contents are forced to disk before the rename, and the rename before returning, such that a file that is
+     * recorded as written in the manifest is not lost or empty after a crash of the machine.
+     */
+    static void publish(Path temporary, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncFolder(path.toAbsolutePath().getParent());
+    }
+
+    private static void syncFolder(Path folder) {
+        try (FileChannel channel = FileChannel.open(folder, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can open a folder, there the rename is as durable as the file system makes it.
+        }
+    }
+
+    private static long writeBinaryEdges(Path path, DirectedGraph graph) throws IOException {
+        long[] nodes = graph.nodes().toLongArray();
+        Arrays.sort(nodes);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(EDGES_MAGIC).putLong(0).putLong(0);
+
+            long sources = 0;
+            long edges = 0;
+            long previousSource = 0;
+            for (long source : nodes) {
+                long[] targets = graph.successors(source).toLongArray();
+                if (targets.length == 0) {
+                    continue;
+                }
+                Arrays.sort(targets);
+
+                ensure(channel, buffer, 2 * VarInts.MAX_BYTES);
+                VarInts.write(buffer, source - previousSource);
+                VarInts.write(buffer, targets.length);
+                long previousTarget = 0;
+                for (long target : targets) {
+                    ensure(channel, buffer, VarInts.MAX_BYTES);
+                    VarInts.write(buffer, target - previousTarget);
+                    previousTarget = target;
+                }
+
+                previousSource = source;
+                sources++;
+                edges += targets.length;
+            }
+            flush(channel, buffer);
+
+            // Patch the header now that the counts are known.
+            ByteBuffer header = ByteBuffer.allocate(16).putLong(sources).putLong(edges);
+            header.flip();
+            channel.write(header, 4);
+            return channel.size();
+        }
+    }
+
+    private static long writeBinaryUris(Path path, long[] ids, LongFunction<String> uriOf) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(URIS_MAGIC).putLong(ids.length);
+
+            long previous = 0;
+            for (long id : ids) {
+                byte[] bytes = uriOf.apply(id).getBytes(StandardCharsets.UTF_8);
+                ensure(channel, buffer, 2 * VarInts.MAX_BYTES);
+                VarInts.write(buffer, id - previous);
+                VarInts.write(buffer, bytes.length);
+                for (int offset = 0; offset < bytes.length; ) {
+                    ensure(channel, buffer, 1);
+                    int length = Math.min(buffer.remaining(), bytes.length - offset);
+                    buffer.put(bytes, offset, length);
+                    offset += length;
+                }
+                previous = id;
+            }
+            flush(channel, buffer);
+            return channel.size();
+        }
+    }
+
+    private static long writeCsvEdges(Path path, DirectedGraph graph) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("source,target\n");
+            for (LongIterator sources = graph.nodes().iterator(); sources.hasNext(); ) {
+                long source = sources.nextLong();
+                for (LongIterator targets = graph.successors(source).iterator(); targets.hasNext(); ) {
+                    out.write(Long.toString(source));
+                    out.write(',');
+                    out.write(Long.toString(targets.nextLong()));
+                    out.write('\n');
+                }
+            }
+        }
+        return Files.size(path);
+    }
+
+    private static long writeCsvUris(Path path, long[] ids, LongFunction<String> uriOf) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("id,uri\n");
+            for (long id : ids) {
+                out.write(Long.toString(id));
+                out.write(",\"");
+                out.write(uriOf.apply(id));
+                out.write("\"\n");
+            }
+        }
+        return Files.size(path);
+    }
+
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
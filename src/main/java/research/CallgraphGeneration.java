@@ -1,17 +1,15 @@
 package research;
 
-import eu.fasten.core.maven.data.ResolvedRevision;
-import eu.fasten.core.maven.data.Revision;
 import picocli.*;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 import java.util.concurrent.Callable;
-
-import static research.MergedCallGraphGenerator.*;
+import java.util.stream.Collectors;
 
 public class CallgraphGeneration implements Callable<Integer> {
 
@@ -21,25 +19,205 @@ public class CallgraphGeneration implements Callable<Integer> {
     @CommandLine.Option(names = { "-t", "--transitive"}, description = "Resolve dependents transitively")
     private boolean transitive;
 
+    @CommandLine.Option(names = {"--dependent-threads"}, description = "Number of threads resolving dependents", defaultValue = "2")
+    private int dependentThreads;
+
+    @CommandLine.Option(names = {"--dependency-threads"}, description = "Number of threads resolving dependencies", defaultValue = "4")
+    private int dependencyThreads;
+
+    @CommandLine.Option(names = {"--merge-threads"}, description = "Number of threads merging callgraphs, defaults to the number of cores")
+    private int mergeThreads = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(names = {"--writer-threads"}, description = "Number of threads writing callgraphs to disk", defaultValue = "2")
+    private int writerThreads;
+
+    @CommandLine.Option(names = {"--queue-capacity"}, description = "Maximum number of dependents waiting between two stages", defaultValue = "16")
+    private int queueCapacity;
+
+    @CommandLine.Option(names = {"--output-format"}, description = "Format of the generated callgraphs: ${COMPLETION-CANDIDATES}", defaultValue = "BINARY")
+    private CallGraphWriter.Format outputFormat;
+
+    @CommandLine.Option(names = {"--output"}, description = "Folder to store the callgraphs of all targets in", defaultValue = "input")
+    private File outputFolder;
+
+    @CommandLine.Option(names = {"--shard"}, description = "Only process shard i of N (i/N) of the packages, balanced by their number of dependents")
+    private String shard;
+
+    @CommandLine.Option(names = {"--dependents-count"}, description = "File with the number of dependents of every package, used to balance the shards", defaultValue = "dependents-count.txt")
+    private File dependentsCountFile;
+
+    @CommandLine.Option(names = {"--work-dir"}, description = "Folder shared by all workers to claim targets in, such that the targets of a dead worker are taken over")
+    private File workFolder;
+
+    @CommandLine.Option(names = {"--worker-id"}, description = "Unique name of this worker, defaults to pid@host")
+    private String workerId = ManagementFactory.getRuntimeMXBean().getName();
+
+    @CommandLine.Option(names = {"--lease-time"}, description = "Number of seconds after which the claim of a worker that stopped renewing it expires", defaultValue = "300")
+    private long leaseTime;
+
+    @CommandLine.Option(names = {"--manifest"}, description = "File to record the progress of every target and dependent in, defaults to manifest.tsv in the output folder")
+    private File manifestFile;
+
+    @CommandLine.Option(names = {"--resume"}, description = "Skip the work that has been completed according to the manifest")
+    private boolean resume;
+
+    @CommandLine.Option(names = {"--retry-failed"}, description = "Only process the work that has failed according to the manifest")
+    private boolean retryFailed;
+
+    @CommandLine.Option(names = {"--dependent-percentage"}, description = "Folder to store the dependent percentage of every analysed artefact in, computed during generation")
+    private File dependentPercentageFolder;
+
+    @CommandLine.Option(names = {"--merge-cache"}, description = "Folder to cache merged callgraphs in, disabled if not set")
+    private File mergeCacheFolder;
+
+    @CommandLine.Option(names = {"--merge-cache-size"}, description = "Maximum size of the merge cache on disk in MB", defaultValue = "10240")
+    private long mergeCacheSize;
+
+    @CommandLine.Option(names = {"--merge-cache-entries"}, description = "Maximum number of merged callgraphs kept in memory, on top of the merge heap budget", defaultValue = "0")
+    private int mergeCacheEntries;
+
+    @CommandLine.Option(names = {"--merge-heap-budget"}, description = "Heap in MB that concurrent merges may use together, defaults to 75% of the maximum heap")
+    private long mergeHeapBudget = Runtime.getRuntime().maxMemory() * 3 / 4 / 1024 / 1024;
+
+    @CommandLine.Option(names = {"--merge-heap-factor"}, description = "Estimated bytes of heap a merge uses per byte of its callgraphs in the callable index", defaultValue = "10")
+    private double mergeHeapFactor;
+
+    @CommandLine.Option(names = {"--merge-timeout"}, description = "Number of seconds after which a merge is cancelled, 0 for no limit", defaultValue = "0")
+    private long mergeTimeout;
+
+    @CommandLine.Option(names = {"--merge-memory-limit"}, description = "Fraction of the maximum heap in use after a collection above which the largest running merge is cancelled", defaultValue = "0.9")
+    private double mergeMemoryLimit;
+
+    @CommandLine.Option(names = {"--uri-dictionary"}, description = "Folder to keep a run-wide URI dictionary in, writing the URIs once per target instead of once per dependent")
+    private File uriDictionaryFolder;
+
+    @CommandLine.Option(names = {"--metrics"}, description = "File to periodically write a JSON snapshot of the metrics to, defaults to metrics.json in the output folder")
+    private File metricsFile;
+
+    @CommandLine.Option(names = {"--metrics-interval"}, description = "Number of seconds between two metrics snapshots", defaultValue = "60")
+    private long metricsInterval;
+
+    @CommandLine.Mixin
+    private DatabaseOptions databaseOptions;
+
     @CommandLine.Option(names = {"-ci", "--callable-index"}, description = "File path to callable-index folder", required = true)
-    protected static String callableIndexUrl;
+    private String callableIndexUrl;
 
     @CommandLine.Option(names = {"-tf", "--temporary-folder"}, description = "File path to temporary folder")
-    protected static String temporaryFolderUrl;
+    private String temporaryFolderUrl;
+
+    @CommandLine.Option(names = {"-rc", "--resolver-cache"}, description = "File path to folder to persist resolver results in, shared with ArtefactSelection")
+    private String resolverCacheUrl;
 
     @Override
     public Integer call() throws Exception {
+        databaseOptions.apply();
+        MergedCallGraphGenerator.setup(callableIndexUrl, temporaryFolderUrl, resolverCacheUrl);
         List<String> packages = Files.readAllLines(file.toPath());
+        List<String> ownPackages = packages;
+        if (Objects.nonNull(shard)) {
+            // With a work folder, the packages of the other shards follow, to take over those of dead workers.
+            int[] parsed = Sharding.parse(shard);
+            var weights = Sharding.readWeights(dependentsCountFile.toPath());
+            ownPackages = Sharding.packagesOf(packages, weights, parsed[0], parsed[1], false);
+            packages = Sharding.packagesOf(packages, weights, parsed[0], parsed[1], Objects.nonNull(workFolder));
+        }
+
+        Path outputRoot = outputFolder.toPath();
+        MergedCallGraphGenerator.useOutputRoot(outputRoot);
+        MergedCallGraphGenerator.useOutputFormat(outputFormat);
+
+        MergedGraphCache cache = null;
+        if (Objects.nonNull(mergeCacheFolder)) {
+            cache = new MergedGraphCache(mergeCacheFolder.toPath(), mergeCacheSize * 1024 * 1024, mergeCacheEntries);
+            MergedCallGraphGenerator.useMergeCache(cache);
+        }
 
-        Map<Revision, Set<ResolvedRevision>> packageList = generateDependents(packages, transitive);
-        for (Map.Entry<Revision, Set<ResolvedRevision>> entry : packageList.entrySet()) {
-            Map<Revision, Set<ResolvedRevision>> dependenciesOfDependents = generateDependenciesForDependents(entry.getValue(), entry.getKey());
-            generateAndStoreCallGraphForDependents(dependenciesOfDependents, entry.getKey());
+        var scheduler = new MergeScheduler(callableIndexUrl, mergeHeapBudget * 1024 * 1024, mergeHeapFactor, mergeTimeout, mergeMemoryLimit);
+        MergedCallGraphGenerator.useMergeScheduler(scheduler);
+
+        var mode = retryFailed ? ProgressManifest.Mode.RETRY_FAILED : resume ? ProgressManifest.Mode.RESUME : ProgressManifest.Mode.FRESH;
+        var manifest = new ProgressManifest(Objects.isNull(manifestFile) ? outputRoot.resolve("manifest.tsv") : manifestFile.toPath(), mode);
+
+        var pipeline = new CallgraphPipeline(transitive, dependentThreads, dependencyThreads, mergeThreads, writerThreads, queueCapacity);
+        pipeline.useManifest(manifest);
+        // Only the targets of this worker's own shard that a previous run did not complete count towards the progress.
+        int targets = (int) ownPackages.stream().filter(pkg -> !manifest.isCompleted(MergedCallGraphGenerator.revisionFromString(pkg))).count();
+        pipeline.addListener(new ProgressReporter(targets));
+        // The URI file of a target has to be written before the dependent percentage reads it back on completion.
+        UriDictionary dictionary = null;
+        if (Objects.nonNull(uriDictionaryFolder)) {
+            dictionary = new UriDictionary(uriDictionaryFolder.toPath(), Database.getContext(), outputFormat, mode == ProgressManifest.Mode.FRESH ? null : manifest);
+            MergedCallGraphGenerator.useUriDictionary(dictionary);
+            pipeline.addListener(dictionary);
+        }
+        if (Objects.nonNull(dependentPercentageFolder)) {
+            pipeline.addListener(new DependentPercentage(dependentPercentageFolder.toPath(), mode == ProgressManifest.Mode.FRESH ? null : manifest));
+        }
+
+        WorkDirectory workDirectory = null;
+        if (Objects.nonNull(workFolder)) {
+            workDirectory = new WorkDirectory(workFolder.toPath(), workerId, outputRoot, leaseTime);
+            pipeline.useWorkDirectory(workDirectory);
+        }
+
+        Metrics.start(Objects.isNull(metricsFile) ? outputRoot.resolve("metrics.json") : metricsFile.toPath(), metricsInterval);
+        try {
+            if (Objects.isNull(workDirectory)) {
+                pipeline.run(packages);
+            } else {
+                runClaimed(pipeline, workDirectory, packages);
+            }
+        } finally {
+            if (Objects.nonNull(workDirectory)) {
+                workDirectory.close();
+            }
+            manifest.close();
+            Metrics.stop();
+            System.out.println(Metrics.statistics());
+            if (Objects.nonNull(cache)) {
+                System.out.println(cache.statistics());
+            }
+            System.out.println(scheduler.statistics());
+            scheduler.close();
+            if (Objects.nonNull(dictionary)) {
+                System.out.println(dictionary.statistics());
+                dictionary.close();
+            }
+            System.out.println(MergedCallGraphGenerator.resolverStatistics());
+            MergedCallGraphGenerator.close();
+            System.out.println(Database.statistics());
+            Database.close();
         }
 
         return 0;
     }
 
+    /**
+     * Method to keep claiming and processing targets until all of them have been completed by one of the workers,
+     * waiting for the leases of other workers to be completed or to expire.
+     *
+     * @param pipeline      Pipeline to process the claimed targets with.
+     * @param workDirectory Work folder to claim targets in.
+     * @param packages      Packages to process, in order of preference.
+     */
+    static void runClaimed(CallgraphPipeline pipeline, WorkDirectory workDirectory, List<String> packages) throws InterruptedException {
+        while (true) {
+            List<String> open = packages.stream()
+                    .filter(pkg -> !workDirectory.isDone(MergedCallGraphGenerator.revisionFromString(pkg)))
+                    .collect(Collectors.toList());
+            if (open.isEmpty()) {
+                return;
+            }
+
+            if (workDirectory.hasClaimable(open.stream().map(MergedCallGraphGenerator::revisionFromString).collect(Collectors.toList()))) {
+                pipeline.run(open);
+            } else {
+                Thread.sleep(workDirectory.leaseMillis() / 2);
+            }
+        }
+    }
+
     public static void main(String[] args) throws Exception {
         int exitCode = new CommandLine(new CallgraphGeneration()).execute(args);
         System.exit(exitCode);
@@ -0,0 +1,458 @@
+package research;
+
+import eu.fasten.core.maven.data.ResolvedRevision;
+import eu.fasten.core.maven.data.Revision;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static research.MergedCallGraphGenerator.*;
+
+/**
+ * Staged pipeline to generate callgraphs for a list of packages.
+ * Every stage has its own pool of worker threads, and consecutive stages are connected by bounded queues,
+ * such that a slow stage blocks the stages in front of it instead of buffering an unbounded amount of work.
+ */
+public class CallgraphPipeline {
+
+    private static final WorkItem POISON = new WorkItem(null, null);
+
+    private final boolean transitive;
+    private final int dependentThreads;
+    private final int dependencyThreads;
+    private final int mergeThreads;
+    private final int writerThreads;
+    private final int queueCapacity;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private ProgressManifest manifest;
+    private WorkDirectory workDirectory;
+    private Operations operations = new Operations() {
+    };
+    private final Map<Revision, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+    public CallgraphPipeline(boolean transitive, int dependentThreads, int dependencyThreads, int mergeThreads, int writerThreads, int queueCapacity) {
+        this.transitive = transitive;
+        this.dependentThreads = dependentThreads;
+        this.dependencyThreads = dependencyThreads;
+        this.mergeThreads = mergeThreads;
+        this.writerThreads = writerThreads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Method to register a listener that is notified of the progress of the pipeline.
+     *
+     * @param listener Listener to notify.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Method to record the progress in a manifest, and skip the work it marks as not to be processed again.
+     *
+     * @param manifest Manifest to record progress in.
+     */
+    public void useManifest(ProgressManifest manifest) {
+        this.manifest = manifest;
+        addListener(manifest);
+    }
+
+    /**
+     * Method to only process the targets this worker claims in a shared work folder.
+     *
+     * @param workDirectory Work folder to claim targets in.
+     */
+    public void useWorkDirectory(WorkDirectory workDirectory) {
+        this.workDirectory = workDirectory;
+        addListener(workDirectory);
+    }
+
+    /**
+     * Method to replace the operations the stages perform, such as by stubs in tests.
+     *
+     * @param operations Operations to perform.
+     */
+    void useOperations(Operations operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * Method to generate and store the callgraphs of all dependents of a list of packages.
+     *
+     * @param packages List of packages to analyse.
+     */
+    public void run(List<String> packages) throws InterruptedException {
+        // Stages: dependent resolution -> dependency resolution -> merge -> write.
+        Stage writer = new Stage("writer", writerThreads, new ArrayBlockingQueue<>(queueCapacity), null,
+                (item, emit) -> {
+                    operations.store(item.callgraph, item.dependent, item.target);
+                    for (Listener listener : listeners) {
+                        listener.stored(item.target, item.dependent, item.callgraph);
+                    }
+                });
+        // The most expensive merges waiting are started first (longest processing time first).
+        Stage merger = new Stage("merge", mergeThreads, new PriorityWorkQueue(queueCapacity), writer,
+                (item, emit) -> {
+                    item.callgraph = operations.merge(item.dependent, item.dependencies);
+                    item.dependencies = null;
+                    for (Listener listener : listeners) {
+                        listener.merged(item.target, item.dependent, item.callgraph);
+                    }
+                    emit.accept(item);
+                });
+        Stage dependencies = new Stage("dependencies", dependencyThreads, new ArrayBlockingQueue<>(queueCapacity), merger,
+                (item, emit) -> {
+                    item.dependencies = operations.dependenciesOf(item.dependent, item.target);
+                    if (!item.dependencies.isEmpty()) {
+                        item.cost = operations.costOf(item.dependent, item.dependencies);
+                        emit.accept(item);
+                        return;
+                    }
+                    for (Listener listener : listeners) {
+                        listener.skipped(item.target, item.dependent);
+                    }
+                });
+        Stage dependents = new Stage("dependents", dependentThreads, new LinkedBlockingQueue<>(), dependencies,
+                (item, emit) -> {
+                    // A target completed by a previous run, or claimed by another worker, is dropped without any events.
+                    if (Objects.nonNull(manifest) && manifest.isCompleted(item.target)) {
+                        // The target is marked done in the work folder as well, so no worker waits for it.
+                        if (Objects.nonNull(workDirectory) && workDirectory.tryClaim(item.target)) {
+                            workDirectory.completed(item.target);
+                        }
+                        item.ignored = true;
+                        return;
+                    }
+                    if (Objects.nonNull(workDirectory) && !workDirectory.tryClaim(item.target)) {
+                        item.ignored = true;
+                        return;
+                    }
+
+                    // A resumed run continues with the dependents the target was resolved to before, which the
+                    // manifest already holds, so the other listeners are only told about the ones still to process.
+                    Set<? extends Revision> previous = Objects.isNull(manifest) ? null : manifest.previousDependents(item.target);
+                    Set<? extends Revision> resolved = previous;
+                    if (Objects.isNull(previous)) {
+                        if (Objects.nonNull(manifest) && !manifest.shouldResolve(item.target)) {
+                            return;
+                        }
+                        resolved = operations.dependentsOf(item.target, transitive);
+                        for (Listener listener : listeners) {
+                            listener.resolved(item.target, resolved);
+                        }
+                    }
+
+                    Set<Revision> remaining = new LinkedHashSet<>();
+                    for (Revision dependent : resolved) {
+                        if (Objects.isNull(manifest) || manifest.shouldProcess(item.target, dependent)) {
+                            remaining.add(dependent);
+                        }
+                    }
+                    if (Objects.nonNull(previous)) {
+                        for (Listener listener : listeners) {
+                            if (listener != manifest) {
+                                listener.resolved(item.target, remaining);
+                            }
+                        }
+                    }
+                    for (Revision dependent : remaining) {
+                        emit.accept(newWorkItem(item.target, dependent));
+                    }
+                });
+
+        // All packages are known up front, so the first queue is filled before any stage is started.
+        for (String pkg : packages) {
+            dependents.input.put(newWorkItem(revisionFromString(pkg), null));
+        }
+        for (int i = 0; i < dependentThreads; i++) {
+            dependents.input.put(POISON);
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        for (Stage stage : List.of(dependents, dependencies, merger, writer)) {
+            threads.addAll(stage.start());
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Method to create a unit of work, which is tracked until it is stored or dropped by one of the stages.
+     */
+    private WorkItem newWorkItem(Revision target, Revision dependent) {
+        pending.computeIfAbsent(target, t -> new AtomicInteger()).incrementAndGet();
+        return new WorkItem(target, dependent);
+    }
+
+    /**
+     * Method to mark a unit of work as finished, notifying the listeners when it was the last one of its target.
+     */
+    private void finish(WorkItem item) {
+        if (pending.get(item.target).decrementAndGet() == 0) {
+            pending.remove(item.target);
+            if (item.ignored) {
+                return;
+            }
+            boolean succeeded = true;
+            for (Listener listener : listeners) {
+                try {
+                    listener.completed(item.target);
+                } catch (Throwable e) {
+                    succeeded = false;
+                    e.printStackTrace();
+                    System.out.format("Exception while completing %s: %s%n", item.target, e);
+                }
+            }
+
+            // Only a target whose outputs have all been written is skipped by a resumed run.
+            if (succeeded && Objects.nonNull(manifest)) {
+                try {
+                    manifest.markCompleted(item.target);
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                    System.out.format("Exception while completing %s: %s%n", item.target, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to put a work item on a queue, even if the current thread is interrupted, restoring the interrupt afterwards.
+     */
+    private static void putUninterruptibly(BlockingQueue<WorkItem> queue, WorkItem item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Listener that is notified of the progress of the pipeline, called from the pipeline's worker threads.
+     */
+    public interface Listener {
+
+        /**
+         * Called after the dependents of a target have been resolved.
+         */
+        default void resolved(Revision target, Set<? extends Revision> dependents) throws Exception {
+        }
+
+        /**
+         * Called when a dependent is dropped because the target is not one of its dependencies.
+         */
+        default void skipped(Revision target, Revision dependent) throws Exception {
+        }
+
+        /**
+         * Called after the callgraph of a dependent has been merged.
+         */
+        default void merged(Revision target, Revision dependent, MergedCallGraph callgraph) throws Exception {
+        }
+
+        /**
+         * Called after the callgraph of a dependent has been stored.
+         */
+        default void stored(Revision target, Revision dependent, MergedCallGraph callgraph) throws Exception {
+        }
+
+        /**
+         * Called once all dependents of a target have been stored or dropped.
+         */
+        default void completed(Revision target) throws Exception {
+        }
+
+        /**
+         * Called when any stage fails for a dependent, or for the target itself if the dependent is null.
+         */
+        default void failed(Revision target, Revision dependent, Throwable cause) throws Exception {
+        }
+    }
+
+    /**
+     * Operations performed by the stages of the pipeline, by default those of {@link MergedCallGraphGenerator}.
+     */
+    interface Operations {
+
+        default Set<? extends Revision> dependentsOf(Revision target, boolean transitive) throws Exception {
+            return resolveDependents(target, transitive);
+        }
+
+        default Set<ResolvedRevision> dependenciesOf(Revision dependent, Revision target) throws Exception {
+            return resolveDependencies(dependent, target);
+        }
+
+        default long costOf(Revision dependent, Set<ResolvedRevision> dependencies) {
+            return estimateMergeCost(dependent, dependencies);
+        }
+
+        default MergedCallGraph merge(Revision dependent, Set<ResolvedRevision> dependencies) throws Exception {
+            return generateCallGraph(dependent, dependencies);
+        }
+
+        default void store(MergedCallGraph callgraph, Revision dependent, Revision target) throws Exception {
+            storeCallGraph(callgraph, dependent, target);
+        }
+    }
+
+    /**
+     * Unit of work flowing through the pipeline, every stage fills in the fields it is responsible for.
+     */
+    private static final class WorkItem {
+        private final Revision target;
+        private final Revision dependent;
+        private Set<ResolvedRevision> dependencies;
+        private long cost;
+        private MergedCallGraph callgraph;
+        private boolean ignored;
+
+        private WorkItem(Revision target, Revision dependent) {
+            this.target = target;
+            this.dependent = dependent;
+        }
+    }
+
+    /**
+     * Bounded queue that hands out the most expensive work item first, and the poison pill only once it is empty.
+     */
+    private static final class PriorityWorkQueue extends PriorityBlockingQueue<WorkItem> {
+        private final Semaphore capacity;
+
+        private PriorityWorkQueue(int capacity) {
+            super(capacity, Comparator.comparing((WorkItem item) -> item == POISON)
+                    .thenComparing(Comparator.comparingLong((WorkItem item) -> item.cost).reversed()));
+            this.capacity = new Semaphore(capacity);
+        }
+
+        @Override
+        public void put(WorkItem item) {
+            capacity.acquireUninterruptibly();
+            super.put(item);
+        }
+
+        @Override
+        public WorkItem take() throws InterruptedException {
+            WorkItem item = super.take();
+            capacity.release();
+            return item;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Emitter {
+        void accept(WorkItem item) throws InterruptedException;
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void process(WorkItem item, Emitter emit) throws Exception;
+    }
+
+    /**
+     * Single stage of the pipeline. When the last worker of a stage finishes, it signals the workers of the next stage.
+     */
+    private final class Stage {
+        private final String name;
+        private final int threads;
+        private final BlockingQueue<WorkItem> input;
+        private final Stage next;
+        private final Step step;
+        private final AtomicInteger running;
+
+        private Stage(String name, int threads, BlockingQueue<WorkItem> input, Stage next, Step step) {
+            this.name = name;
+            this.threads = threads;
+            this.input = input;
+            this.next = next;
+            this.step = step;
+            this.running = new AtomicInteger(threads);
+        }
+
+        private List<Thread> start() {
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Thread worker = new Thread(this::work, String.format("%s-%d", name, i));
+                worker.start();
+                workers.add(worker);
+            }
+            return workers;
+        }
+
+        private void work() {
+            try {
+                WorkItem item;
+                while ((item = input.take()) != POISON) {
+                    // Items that are not passed on to the next stage end their life in this stage.
+                    WorkItem current = item;
+                    boolean[] forwarded = new boolean[1];
+                    try {
+                        step.process(item, out -> {
+                            forwarded[0] |= out == current;
+                            if (next != null) {
+                                next.input.put(out);
+                            }
+                        });
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        // Errors such as an OutOfMemoryError only fail the item, the worker continues with the next one.
+                        fail(item, e);
+                    }
+                    if (!forwarded[0]) {
+                        finish(item);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // The last worker to finish tells every worker of the next stage that no more work is coming.
+                if (running.decrementAndGet() == 0 && next != null) {
+                    for (int i = 0; i < next.threads; i++) {
+                        putUninterruptibly(next.input, POISON);
+                    }
+                }
+            }
+        }
+
+        private void fail(WorkItem item, Throwable cause) {
+            try {
+                cause.printStackTrace();
+                Metrics.failed(cause);
+                System.out.format("Exception in %s stage for %s as dependent of %s: %s%n", name, item.dependent, item.target, cause);
+            } catch (Throwable e) {
+                // Reporting may fail as well when the heap is exhausted, which must not stop the worker.
+            }
+            for (Listener listener : listeners) {
+                try {
+                    listener.failed(item.target, item.dependent, cause);
+                } catch (Throwable f) {
+                    f.printStackTrace();
+                }
+            }
+        }
+    }
+
+}
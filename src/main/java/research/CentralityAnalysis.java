@@ -0,0 +1,218 @@
+package research;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import picocli.CommandLine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Computes the degree and eigenvector centrality of the methods of every analysed artefact.
+ * Replacement for `analysis_degree.py` and `analysis_eigenvector.py` that writes the same normalised output files.
+ */
+public class CentralityAnalysis implements Callable<Integer> {
+
+    @CommandLine.Option(names = {"-i", "--input"}, description = "Folder with the generated callgraphs, one folder per artefact", defaultValue = "input")
+    private File inputFolder;
+
+    @CommandLine.Option(names = {"-o", "--output"}, description = "Folder to store the centrality values in", required = true)
+    private File outputFolder;
+
+    @CommandLine.Option(names = {"--threads"}, description = "Number of threads for the power iteration, defaults to the number of cores")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(names = {"--max-iterations"}, description = "Maximum number of power iterations", defaultValue = "1000")
+    private int maxIterations;
+
+    @CommandLine.Option(names = {"--tolerance"}, description = "Convergence tolerance of the power iteration per node", defaultValue = "1e-6")
+    private double tolerance;
+
+    @Override
+    public Integer call() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Path> artefactFolders;
+        try (Stream<Path> folders = Files.list(inputFolder.toPath())) {
+            artefactFolders = folders.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+
+        for (Path artefactFolder : artefactFolders) {
+            try {
+                processArtefact(artefactFolder, pool);
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.out.format("Exception while analysing %s: %s%n", artefactFolder, e);
+            }
+        }
+
+        pool.shutdown();
+        return 0;
+    }
+
+    /**
+     * Method to compute and store the centrality values of a single analysed artefact.
+     *
+     * @param artefactFolder Folder with the callgraphs of all dependents of the artefact.
+     * @param pool           Pool to run the power iteration in.
+     */
+    private void processArtefact(Path artefactFolder, ForkJoinPool pool) throws Exception {
+        // Determine start time.
+        long t0 = System.currentTimeMillis();
+
+        // Extract the artefact name from the directory.
+        String[] parts = artefactFolder.getFileName().toString().split("_");
+        String artefact = String.format("%s:%s$%s", parts[0], parts[1], parts[2]);
+
+        // Extract the method calls and the IDs of the methods of the analysed artefact from all dependents, whose URIs
+        // are either stored once for the artefact or per dependent. The calls are added to the graph one dependent at a
+        // time, such that the calls they have in common are only kept once.
+        CsrGraph.Builder builder = new CsrGraph.Builder();
+        LongOpenHashSet artefactIds = new LongOpenHashSet();
+        CallGraphReader.UriConsumer collectArtefactIds = (id, uri) -> {
+            if (uri.contains(artefact)) {
+                artefactIds.add(id);
+            }
+        };
+        readUris(artefactFolder, collectArtefactIds);
+        boolean hasEdges = false;
+        for (Path dependentFolder : subfolders(artefactFolder)) {
+            LongArrayList sources = new LongArrayList();
+            LongArrayList targets = new LongArrayList();
+            readEdges(dependentFolder, sources, targets);
+            readUris(dependentFolder, collectArtefactIds);
+            builder.add(sources, targets);
+            hasEdges |= !sources.isEmpty();
+        }
+
+        // If no artefact IDs have been extracted, return (happens when analysing a purely Scala or Kotlin library).
+        if (artefactIds.isEmpty() || !hasEdges) {
+            return;
+        }
+
+        // Load the callgraph.
+        CsrGraph callgraph = builder.build();
+        builder = null;
+
+        // Calculate the centralities and store the values of the methods we are analysing in a file in range [0,1].
+        Path output = outputFolder.toPath().resolve(artefact);
+        Files.createDirectories(output);
+        store(output.resolve("degree.bin"), callgraph, callgraph.degreeCentrality(), artefactIds);
+        store(output.resolve("eigenvector.bin"), callgraph, callgraph.eigenvectorCentrality(pool, maxIterations, tolerance), artefactIds);
+
+        System.out.format("Calculated centrality in %.2f seconds for %s%n", (System.currentTimeMillis() - t0) / 1000.0, artefact);
+    }
+
+    /**
+     * Method to store the min-max normalised centrality of the methods of the analysed artefact, highest value first.
+     */
+    private static void store(Path path, CsrGraph callgraph, double[] centrality, LongOpenHashSet artefactIds) throws IOException {
+        int[] nodes = IntStream.range(0, callgraph.numNodes()).filter(i -> artefactIds.contains(callgraph.id(i))).toArray();
+        if (nodes.length == 0) {
+            return;
+        }
+        double max = Arrays.stream(nodes).mapToDouble(i -> centrality[i]).max().getAsDouble();
+        double min = Arrays.stream(nodes).mapToDouble(i -> centrality[i]).min().getAsDouble();
+
+        // The Python scripts fail with a division by zero if all values are equal, here they are all stored as 0.
+        double range = max - min == 0 ? 1 : max - min;
+        String data = Arrays.stream(nodes).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> centrality[i]).reversed().thenComparingLong(callgraph::id))
+                .map(i -> String.format("%d,%s", callgraph.id(i), formatDouble((centrality[i] - min) / range)))
+                .collect(Collectors.joining("\n"));
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.print(data);
+        }
+    }
+
+    private static List<Path> subfolders(Path folder) throws IOException {
+        try (Stream<Path> folders = Files.list(folder)) {
+            return folders.filter(Files::isDirectory).collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Method to read the edges of a dependent's callgraph, in either the binary or the CSV format.
+     */
+    static void readEdges(Path folder, LongArrayList sources, LongArrayList targets) throws IOException {
+        Path binary = folder.resolve(CallGraphWriter.callgraphFileName(CallGraphWriter.Format.BINARY));
+        Path csv = folder.resolve(CallGraphWriter.callgraphFileName(CallGraphWriter.Format.CSV));
+        if (Files.exists(binary)) {
+            CallGraphReader.readEdges(binary, (source, target) -> {
+                sources.add(source);
+                targets.add(target);
+            });
+        } else if (Files.exists(csv)) {
+            try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+                String line = in.readLine(); // Header.
+                while ((line = in.readLine()) != null) {
+                    int comma = line.indexOf(',');
+                    if (comma > 0) {
+                        sources.add(Long.parseLong(line, 0, comma, 10));
+                        targets.add(Long.parseLong(line, comma + 1, line.length(), 10));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to read the URIs of a dependent's callgraph, or of all callgraphs of a target, in either the binary or the
+     * CSV format.
+     */
+    static void readUris(Path folder, CallGraphReader.UriConsumer consumer) throws IOException {
+        Path binary = folder.resolve(CallGraphWriter.urisFileName(CallGraphWriter.Format.BINARY));
+        Path csv = folder.resolve(CallGraphWriter.urisFileName(CallGraphWriter.Format.CSV));
+        if (Files.exists(binary)) {
+            CallGraphReader.readUris(binary, consumer);
+        } else if (Files.exists(csv)) {
+            try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+                String line = in.readLine(); // Header.
+                while ((line = in.readLine()) != null) {
+                    int comma = line.indexOf(',');
+                    if (comma > 0) {
+                        consumer.accept(Long.parseLong(line, 0, comma, 10), line.substring(comma + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to format a value like Python's `repr` of a float, so the output matches the Python scripts.
+     */
+    static String formatDouble(double value) {
+        if (value == 0) {
+            return "0.0";
+        }
+        BigDecimal decimal = new BigDecimal(Double.toString(value)).stripTrailingZeros();
+        String digits = decimal.unscaledValue().abs().toString();
+        int exponent = digits.length() - 1 - decimal.scale();
+        if (exponent < -4 || exponent >= 16) {
+            String mantissa = digits.length() == 1 ? digits : digits.charAt(0) + "." + digits.substring(1);
+            return String.format("%s%se%s%02d", value < 0 ? "-" : "", mantissa, exponent < 0 ? "-" : "+", Math.abs(exponent));
+        }
+        String plain = decimal.toPlainString();
+        return plain.contains(".") ? plain : plain + ".0";
+    }
+
+    public static void main(String[] args) throws Exception {
+        int exitCode = new CommandLine(new CentralityAnalysis()).execute(args);
+        System.exit(exitCode);
+    }
+
+}
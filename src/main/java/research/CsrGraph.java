@@ -0,0 +1,226 @@
+package research;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Undirected graph in compressed sparse row form, the primitive counterpart of the networkx graph built from an edge list.
+ * Node IDs are mapped to dense indices in ascending order; parallel edges are collapsed and self-loops are kept once.
+ * Graphs are built with a {@link Builder}.
+ */
+public class CsrGraph {
+
+    // Largest array length the JVM reliably allocates.
+    private static final int MAX_EDGES = Integer.MAX_VALUE - 8;
+
+    private final long[] ids;
+    private final int[] offsets;
+    private final int[] neighbours;
+    private final boolean[] selfLoops;
+
+    private CsrGraph(long[] ids, int[] offsets, int[] neighbours, boolean[] selfLoops) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.selfLoops = selfLoops;
+    }
+
+    /**
+     * Builder that collects the edges of several callgraphs as the union of their undirected edges. The callgraphs of
+     * the dependents of an artefact mostly share the same dependency subgraph, so every callgraph is deduplicated and
+     * merged into the union as it is added, and memory grows with the union instead of the sum of the callgraphs.
+     */
+    public static class Builder {
+        private final LongOpenHashSet nodes = new LongOpenHashSet();
+        private long[] lows = new long[0];
+        private long[] highs = new long[0];
+        private int size;
+
+        /**
+         * Method to add the directed edges of a callgraph.
+         *
+         * @param sources Source of every edge.
+         * @param targets Target of every edge, at the same position as its source.
+         */
+        public void add(LongArrayList sources, LongArrayList targets) {
+            int m = sources.size();
+            if (m == 0) {
+                return;
+            }
+
+            // 1. Orient every edge as (min, max) pair of IDs, then sort and deduplicate them.
+            long[] low = new long[m];
+            long[] high = new long[m];
+            for (int i = 0; i < m; i++) {
+                long u = sources.getLong(i);
+                long v = targets.getLong(i);
+                nodes.add(u);
+                nodes.add(v);
+                low[i] = Math.min(u, v);
+                high[i] = Math.max(u, v);
+            }
+            LongArrays.parallelQuickSort(low, high);
+            int unique = 0;
+            for (int i = 0; i < m; i++) {
+                if (i == 0 || low[i] != low[i - 1] || high[i] != high[i - 1]) {
+                    low[unique] = low[i];
+                    high[unique++] = high[i];
+                }
+            }
+
+            // 2. Merge them into the sorted union of the edges added so far.
+            long capacity = (long) size + unique;
+            if (capacity > MAX_EDGES) {
+                throw new IllegalStateException(String.format("Callgraph has more than %d distinct edges", MAX_EDGES));
+            }
+            long[] mergedLows = new long[(int) capacity];
+            long[] mergedHighs = new long[(int) capacity];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < size || j < unique) {
+                int order = i == size ? 1 : j == unique ? -1 : compare(lows[i], highs[i], low[j], high[j]);
+                if (order <= 0) {
+                    mergedLows[k] = lows[i];
+                    mergedHighs[k++] = highs[i++];
+                    j += order == 0 ? 1 : 0;
+                } else {
+                    mergedLows[k] = low[j];
+                    mergedHighs[k++] = high[j++];
+                }
+            }
+            lows = mergedLows;
+            highs = mergedHighs;
+            size = k;
+        }
+
+        /**
+         * Method to build the undirected graph of all edges added so far.
+         *
+         * @return Graph containing every node that appears in an edge.
+         */
+        public CsrGraph build() {
+            // 1. Map the node IDs to dense indices, which keeps the edges sorted and unique.
+            long[] ids = nodes.toLongArray();
+            Arrays.parallelSort(ids);
+            int n = ids.length;
+            int[] us = new int[size];
+            int[] vs = new int[size];
+            Arrays.parallelSetAll(us, i -> Arrays.binarySearch(ids, lows[i]));
+            Arrays.parallelSetAll(vs, i -> Arrays.binarySearch(ids, highs[i]));
+            lows = null;
+            highs = null;
+
+            // 2. Count the neighbours of every node, then fill in the adjacency lists.
+            long[] degrees = new long[n + 1];
+            boolean[] selfLoops = new boolean[n];
+            for (int i = 0; i < size; i++) {
+                degrees[us[i] + 1]++;
+                if (us[i] != vs[i]) {
+                    degrees[vs[i] + 1]++;
+                } else {
+                    selfLoops[us[i]] = true;
+                }
+            }
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                degrees[i + 1] += degrees[i];
+                if (degrees[i + 1] > MAX_EDGES) {
+                    throw new IllegalStateException(String.format("Callgraph has more than %d adjacency entries", MAX_EDGES));
+                }
+                offsets[i + 1] = (int) degrees[i + 1];
+            }
+
+            int[] neighbours = new int[offsets[n]];
+            int[] position = Arrays.copyOf(offsets, n);
+            for (int i = 0; i < size; i++) {
+                int u = us[i];
+                int v = vs[i];
+                neighbours[position[u]++] = v;
+                if (u != v) {
+                    neighbours[position[v]++] = u;
+                }
+            }
+
+            return new CsrGraph(ids, offsets, neighbours, selfLoops);
+        }
+
+        private static int compare(long lowA, long highA, long lowB, long highB) {
+            int order = Long.compare(lowA, lowB);
+            return order != 0 ? order : Long.compare(highA, highB);
+        }
+    }
+
+    public int numNodes() {
+        return ids.length;
+    }
+
+    public long id(int node) {
+        return ids[node];
+    }
+
+    /**
+     * Method to compute the degree centrality of every node, like `networkx.degree_centrality`.
+     * A self-loop counts twice towards the degree of a node.
+     *
+     * @return Degree of every node divided by the number of other nodes.
+     */
+    public double[] degreeCentrality() {
+        int n = numNodes();
+        double scale = n <= 1 ? 1 : 1.0 / (n - 1);
+        double[] centrality = new double[n];
+        for (int i = 0; i < n; i++) {
+            centrality[i] = (offsets[i + 1] - offsets[i] + (selfLoops[i] ? 1 : 0)) * scale;
+        }
+        return centrality;
+    }
+
+    /**
+     * Method to compute the eigenvector centrality of every node by power iteration on `A + I`, which has the same
+     * leading eigenvector as the adjacency matrix `A` but also converges on bipartite graphs.
+     *
+     * @param pool          Pool to run the iterations in.
+     * @param maxIterations Maximum number of iterations.
+     * @param tolerance     Convergence tolerance per node, as in `networkx.eigenvector_centrality`.
+     * @return Eigenvector centrality of every node, with unit Euclidean norm.
+     */
+    public double[] eigenvectorCentrality(ForkJoinPool pool, int maxIterations, double tolerance) throws Exception {
+        int n = numNodes();
+        double[] current = new double[n];
+        Arrays.fill(current, 1.0 / Math.sqrt(n));
+        double[] next = new double[n];
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            double[] x = current;
+            double[] y = next;
+            double norm = Math.sqrt(pool.submit(() -> IntStream.range(0, n).parallel().mapToDouble(i -> {
+                double sum = x[i];
+                for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                    sum += x[neighbours[j]];
+                }
+                y[i] = sum;
+                return sum * sum;
+            }).sum()).get());
+
+            double difference = pool.submit(() -> IntStream.range(0, n).parallel().mapToDouble(i -> {
+                y[i] /= norm;
+                return Math.abs(y[i] - x[i]);
+            }).sum()).get();
+
+            current = y;
+            next = x;
+            if (difference < n * tolerance) {
+                return current;
+            }
+        }
+
+        System.out.format("Eigenvector centrality did not converge in %d iterations.%n", maxIterations);
+        return current;
+    }
+
+}
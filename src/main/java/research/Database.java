@@ -0,0 +1,178 @@
+package research;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.ConnectionProvider;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.impl.DefaultExecuteListener;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared access to the Fasten metadata database.
+ * All database calls go through a single bounded connection pool, which also keeps track of the time spent waiting
+ * for a connection and the time spent executing queries.
+ */
+public class Database {
+
+    public static final String DEFAULT_URL = "jdbc:postgresql://localhost:5432/fasten_java";
+    public static final String DEFAULT_USER = "fasten";
+    public static final int DEFAULT_POOL_SIZE = 8;
+
+    private static String url = DEFAULT_URL;
+    private static String user = DEFAULT_USER;
+    private static int poolSize = DEFAULT_POOL_SIZE;
+
+    private static HikariDataSource dataSource;
+    private static DSLContext context;
+
+    private static final LongAdder acquisitions = new LongAdder();
+    private static final LongAdder poolWaitNanos = new LongAdder();
+    private static final LongAccumulator maxPoolWaitNanos = new LongAccumulator(Math::max, 0);
+    private static final LongAdder queries = new LongAdder();
+    private static final LongAdder queryNanos = new LongAdder();
+    private static final LongAccumulator maxQueryNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Method to configure the database connection, must be called before the context is first used.
+     *
+     * @param url      JDBC URL of the database.
+     * @param user     Database user, the password is read from the `FASTEN_DBPASS` or `PGPASSWORD` environment variable.
+     * @param poolSize Maximum number of open connections.
+     */
+    public static synchronized void configure(String url, String user, int poolSize) {
+        if (Objects.nonNull(context)) {
+            throw new IllegalStateException("Database connection has already been initialised.");
+        }
+        Database.url = url;
+        Database.user = user;
+        Database.poolSize = poolSize;
+    }
+
+    /**
+     * Method to get the shared database context, the connection pool is created on first use.
+     *
+     * @return Database context backed by the connection pool.
+     */
+    public static synchronized DSLContext getContext() {
+        if (Objects.isNull(context)) {
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(url);
+            config.setUsername(user);
+            config.setPassword(password());
+            config.setMaximumPoolSize(poolSize);
+            config.setPoolName("fasten-db");
+            dataSource = new HikariDataSource(config);
+
+            var configuration = new DefaultConfiguration()
+                    .set(SQLDialect.POSTGRES)
+                    .set(new TimedConnectionProvider(dataSource))
+                    .set(new DefaultExecuteListenerProvider(new TimedExecuteListener()));
+            context = DSL.using(configuration);
+        }
+        return context;
+    }
+
+    /**
+     * Method to summarise the pool-wait and query-latency statistics gathered so far.
+     *
+     * @return Human-readable summary of the statistics.
+     */
+    public static String statistics() {
+        return String.format("Database: %d connections acquired (avg wait %.2f ms, max %.2f ms), %d queries (avg %.2f ms, max %.2f ms).",
+                acquisitions.sum(), average(poolWaitNanos, acquisitions), maxPoolWaitNanos.get() / 1e6,
+                queries.sum(), average(queryNanos, queries), maxQueryNanos.get() / 1e6);
+    }
+
+    /**
+     * Method to close the connection pool.
+     */
+    public static synchronized void close() {
+        if (Objects.nonNull(dataSource)) {
+            dataSource.close();
+            dataSource = null;
+            context = null;
+        }
+    }
+
+    private static String password() {
+        String password = Objects.requireNonNullElseGet(System.getenv("FASTEN_DBPASS"), () -> System.getenv("PGPASSWORD"));
+        if (Objects.isNull(password)) {
+            throw new IllegalArgumentException("Database password is not set, set the FASTEN_DBPASS or PGPASSWORD environment variable.");
+        }
+        return password;
+    }
+
+    private static double average(LongAdder nanos, LongAdder count) {
+        return count.sum() == 0 ? 0 : nanos.sum() / 1e6 / count.sum();
+    }
+
+    /**
+     * Connection provider that measures how long callers wait for a connection from the pool.
+     */
+    private static final class TimedConnectionProvider implements ConnectionProvider {
+        private final HikariDataSource dataSource;
+
+        private TimedConnectionProvider(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public Connection acquire() throws DataAccessException {
+            long start = System.nanoTime();
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new DataAccessException("Could not acquire a connection from the pool", e);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                acquisitions.increment();
+                poolWaitNanos.add(elapsed);
+                maxPoolWaitNanos.accumulate(elapsed);
+            }
+        }
+
+        @Override
+        public void release(Connection connection) throws DataAccessException {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new DataAccessException("Could not return a connection to the pool", e);
+            }
+        }
+    }
+
+    /**
+     * Execute listener that measures the latency of every query.
+     */
+    private static final class TimedExecuteListener extends DefaultExecuteListener {
+        private static final String START = "research.Database.start";
+
+        @Override
+        public void executeStart(ExecuteContext ctx) {
+            ctx.data(START, System.nanoTime());
+        }
+
+        @Override
+        public void executeEnd(ExecuteContext ctx) {
+            Object start = ctx.data(START);
+            if (start instanceof Long) {
+                long elapsed = System.nanoTime() - (Long) start;
+                queries.increment();
+                queryNanos.add(elapsed);
+                maxQueryNanos.accumulate(elapsed);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package research;
+
+import picocli.CommandLine;
+
+/**
+ * Command line options to configure the shared database connection.
+ */
+public class DatabaseOptions {
+
+    @CommandLine.Option(names = {"--db-url"}, description = "JDBC URL of the Fasten database", defaultValue = Database.DEFAULT_URL)
+    private String url;
+
+    @CommandLine.Option(names = {"--db-user"}, description = "User of the Fasten database, password is read from FASTEN_DBPASS or PGPASSWORD", defaultValue = Database.DEFAULT_USER)
+    private String user;
+
+    @CommandLine.Option(names = {"--db-pool-size"}, description = "Maximum number of pooled database connections", defaultValue = "" + Database.DEFAULT_POOL_SIZE)
+    private int poolSize;
+
+    /**
+     * Method to apply the parsed options to the shared database connection.
+     */
+    public void apply() {
+        Database.configure(url, user, poolSize);
+    }
+
+}
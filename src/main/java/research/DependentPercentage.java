@@ -0,0 +1,168 @@
+package research;
+
+import eu.fasten.core.data.DirectedGraph;
+import eu.fasten.core.maven.data.Revision;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Computes, for every method of an analysed artefact, the percentage of artefacts that call it while the callgraphs are
+ * generated. Fused counterpart of `analysis_dependent_percentage.py` that writes the same `dependent-percentage.bin`.
+ */
+public class DependentPercentage implements CallgraphPipeline.Listener {
+
+    private static final Pattern ARTEFACT = Pattern.compile("fasten://mvn!([\\w\\.-]+:[\\w\\.-]+\\$[\\w\\.-]+)/");
+
+    private final Path outputFolder;
+    private final ProgressManifest manifest;
+    private final Map<Revision, Accumulator> accumulators = new ConcurrentHashMap<>();
+
+    /**
+     * @param outputFolder Folder to store `<artefact>/dependent-percentage.bin` in.
+     * @param manifest     Manifest of a resumed run, whose previously written callgraphs are read back from disk; may be null.
+     */
+    public DependentPercentage(Path outputFolder, ProgressManifest manifest) {
+        this.outputFolder = outputFolder;
+        this.manifest = manifest;
+    }
+
+    @Override
+    public void stored(Revision target, Revision dependent, MergedCallGraph callgraph) {
+        accumulators.computeIfAbsent(target, DependentPercentage::newAccumulator).add(callgraph);
+    }
+
+    @Override
+    public void completed(Revision target) throws IOException {
+        Accumulator accumulator = accumulators.remove(target);
+        Set<Revision> previouslyWritten = Objects.isNull(manifest) ? Set.of() : manifest.previouslyWritten(target);
+        if (Objects.isNull(accumulator) && previouslyWritten.isEmpty()) {
+            return;
+        }
+
+        // Callgraphs written by a previous run are not in memory, so they are read back from disk.
+        if (Objects.isNull(accumulator)) {
+            accumulator = newAccumulator(target);
+        }
+        if (!previouslyWritten.isEmpty()) {
+            CentralityAnalysis.readUris(MergedCallGraphGenerator.outputFolderOf(target), accumulator::addUri);
+        }
+        for (Revision dependent : previouslyWritten) {
+            Path folder = MergedCallGraphGenerator.outputFolderOf(target, dependent);
+            Accumulator current = accumulator;
+            CentralityAnalysis.readUris(folder, current::addUri);
+            LongArrayList sources = new LongArrayList();
+            LongArrayList targets = new LongArrayList();
+            CentralityAnalysis.readEdges(folder, sources, targets);
+            for (int i = 0; i < sources.size(); i++) {
+                current.addEdge(sources.getLong(i), targets.getLong(i));
+            }
+        }
+        accumulator.write(outputFolder.resolve(accumulator.artefact).resolve("dependent-percentage.bin"));
+    }
+
+    private static Accumulator newAccumulator(Revision target) {
+        return new Accumulator(String.format("%s:%s$%s", target.getGroupId(), target.getArtifactId(), target.version));
+    }
+
+    /**
+     * Calling artefacts of every method of a single analysed artefact, accumulated over all of its dependents.
+     */
+    private static final class Accumulator {
+        private final String artefact;
+        private final Object2IntOpenHashMap<String> artefactIndex = new Object2IntOpenHashMap<>();
+        private final Long2IntOpenHashMap idToArtefact = new Long2IntOpenHashMap();
+        private final LongOpenHashSet artefactIds = new LongOpenHashSet();
+        private final Long2ObjectOpenHashMap<BitSet> artefactsThatCallId = new Long2ObjectOpenHashMap<>();
+
+        private Accumulator(String artefact) {
+            this.artefact = artefact;
+            this.artefactIndex.defaultReturnValue(-1);
+            this.idToArtefact.defaultReturnValue(-1);
+        }
+
+        private synchronized void add(MergedCallGraph callgraph) {
+            // Map every ID to an artefact, and extract the IDs of the artefact we are analysing.
+            for (Map.Entry<Long, String> uri : callgraph.getUris().entrySet()) {
+                addUri(uri.getKey(), uri.getValue());
+            }
+
+            // If the method called is part of the artefact we are analysing, add the calling artefact.
+            DirectedGraph graph = callgraph.getGraph();
+            for (LongIterator ids = graph.nodes().iterator(); ids.hasNext(); ) {
+                long id = ids.nextLong();
+                if (!artefactIds.contains(id)) {
+                    continue;
+                }
+                for (LongIterator callers = graph.predecessors(id).iterator(); callers.hasNext(); ) {
+                    addEdge(callers.nextLong(), id);
+                }
+            }
+        }
+
+        private synchronized void addUri(long id, String uri) {
+            Matcher matcher = ARTEFACT.matcher(uri);
+            if (!matcher.find()) {
+                return;
+            }
+            String pkg = matcher.group(1);
+            int index = artefactIndex.getInt(pkg);
+            if (index < 0) {
+                index = artefactIndex.size();
+                artefactIndex.put(pkg, index);
+            }
+            idToArtefact.put(id, index);
+            if (pkg.contains(artefact)) {
+                artefactIds.add(id);
+            }
+        }
+
+        private synchronized void addEdge(long source, long target) {
+            int caller = idToArtefact.get(source);
+            if (caller < 0 || !artefactIds.contains(target)) {
+                return;
+            }
+            BitSet artefacts = artefactsThatCallId.get(target);
+            if (artefacts == null) {
+                artefacts = new BitSet();
+                artefactsThatCallId.put(target, artefacts);
+            }
+            artefacts.set(caller);
+        }
+
+        private synchronized void write(Path path) throws IOException {
+            // Sort all IDs based on the number of unique artefacts that call them, and store them in range [0,1].
+            double numDependents = artefactIndex.size();
+            String data = artefactsThatCallId.long2ObjectEntrySet().stream()
+                    .sorted(Comparator.comparingInt((Long2ObjectMap.Entry<BitSet> e) -> e.getValue().cardinality()).reversed())
+                    .map(e -> String.format("%d,%s", e.getLongKey(), CentralityAnalysis.formatDouble(e.getValue().cardinality() / numDependents)))
+                    .collect(Collectors.joining("\n"));
+
+            Path temporary = CallGraphWriter.temporaryFileOf(path);
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(temporary, StandardCharsets.UTF_8))) {
+                out.print(data);
+            }
+            CallGraphWriter.publish(temporary, path);
+        }
+    }
+
+}
@@ -0,0 +1,246 @@
+package research;
+
+import eu.fasten.core.maven.data.Revision;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits merges against a heap budget and guards them with a time and memory limit.
+ * The cost of a merge is estimated up front from the serialised size of the callgraphs of its revisions in the
+ * callable index, such that the pipeline can schedule the most expensive merges first. A merge that exceeds a limit
+ * is interrupted and reported as failed, instead of taking the whole JVM down with an `OutOfMemoryError`.
+ * <p>
+ * Heap usage is measured as the usage of the heap pools right after their last collection, such that garbage that
+ * has not been collected yet does not count. The merger does not check for interrupts, so a cancelled merge keeps
+ * running and holding its share of the budget until it ends on its own, and no other merge is admitted until then.
+ */
+public class MergeScheduler implements AutoCloseable {
+
+    private static final long POLL_MILLIS = 1000;
+
+    private final RocksDB index;
+    private final long heapBudget;
+    private final double heapFactor;
+    private final long timeoutMillis;
+    private final double memoryLimit;
+
+    private final Map<Long, Long> indexSizes = new ConcurrentHashMap<>();
+    private final AtomicLong indexedBytes = new AtomicLong();
+    private final AtomicLong indexedRevisions = new AtomicLong();
+    private final Set<Merge> running = ConcurrentHashMap.newKeySet();
+    private long available;
+    private int zombies;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong overMemory = new AtomicLong();
+    private final AtomicLong outOfMemory = new AtomicLong();
+    private final AtomicLong withoutId = new AtomicLong();
+
+    /**
+     * @param callableIndexUrl File path to the callable-index folder, opened a second time in read-only mode.
+     * @param heapBudget       Number of bytes of heap that concurrent merges may use together.
+     * @param heapFactor       Estimated number of bytes of heap a merge uses per byte of its callgraphs in the index.
+     * @param timeoutSeconds   Number of seconds after which a merge is cancelled, or 0 to never cancel a merge for its time.
+     * @param memoryLimit      Fraction of the maximum heap in use after a collection above which the largest running
+     *                         merge is cancelled.
+     */
+    public MergeScheduler(String callableIndexUrl, long heapBudget, double heapFactor, long timeoutSeconds, double memoryLimit) throws RocksDBException {
+        RocksDB.loadLibrary();
+        this.index = RocksDB.openReadOnly(new Options(), callableIndexUrl);
+        this.heapBudget = heapBudget;
+        this.available = heapBudget;
+        this.heapFactor = heapFactor;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Method to estimate the cost of merging the callgraphs of a set of revisions.
+     * A revision without an ID, such as a dependent that is read back from the manifest of a run before IDs were
+     * recorded, is estimated at the average size of the callgraphs looked up so far.
+     *
+     * @param revisions Revisions whose callgraphs are merged.
+     * @return Total size of their callgraphs in the callable index in bytes, plus one per revision.
+     */
+    public long estimate(Collection<? extends Revision> revisions) {
+        long cost = 0;
+        for (Revision revision : revisions) {
+            if (revision.id <= 0) {
+                withoutId.incrementAndGet();
+                long count = indexedRevisions.get();
+                cost += 1 + (count == 0 ? 0 : indexedBytes.get() / count);
+                continue;
+            }
+            cost += 1 + indexSizes.computeIfAbsent(revision.id, this::indexSize);
+        }
+        return cost;
+    }
+
+    private long indexSize(long id) {
+        try {
+            // Reading into an empty buffer only returns the size of the value, without copying it onto the heap.
+            int size = index.get(ByteBuffer.allocate(Long.BYTES).putLong(id).array(), new byte[0]);
+            if (size == RocksDB.NOT_FOUND) {
+                return 0;
+            }
+            indexedBytes.addAndGet(size);
+            indexedRevisions.incrementAndGet();
+            return size;
+        } catch (RocksDBException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Method to run a merge once its estimated heap usage fits in the budget, cancelling it if it exceeds a limit.
+     *
+     * @param description Description of the merge, used in error messages.
+     * @param cost        Estimated cost of the merge, see {@link #estimate}.
+     * @param merge       Merge to run.
+     * @return Result of the merge.
+     */
+    public <T> T run(String description, long cost, Callable<T> merge) throws Exception {
+        // A merge that is estimated to need more than the whole budget runs on its own.
+        long heap = Math.max(1, Math.min(heapBudget, (long) (cost * heapFactor)));
+        acquire(heap);
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Merge current = new Merge(cost);
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(merge.call());
+            } catch (OutOfMemoryError e) {
+                outOfMemory.incrementAndGet();
+                result.completeExceptionally(e);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                // The budget is only returned once the merge has actually stopped.
+                running.remove(current);
+                release(heap, current);
+            }
+        }, "merge-" + description);
+        thread.setDaemon(true);
+        running.add(current);
+        admitted.incrementAndGet();
+        thread.start();
+
+        long start = System.currentTimeMillis();
+        while (true) {
+            try {
+                return result.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } catch (TimeoutException e) {
+                if (timeoutMillis > 0 && System.currentTimeMillis() - start > timeoutMillis) {
+                    timedOut.incrementAndGet();
+                    cancel(current, thread);
+                    throw new TimeoutException(String.format("Merge of %s cancelled after %d seconds", description, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis)));
+                }
+                if (heapUsage() > memoryLimit && isLargest(current)) {
+                    overMemory.incrementAndGet();
+                    cancel(current, thread);
+                    throw new IllegalStateException(String.format("Merge of %s cancelled at %.0f%% heap usage", description, heapUsage() * 100));
+                }
+            }
+        }
+    }
+
+    private synchronized void acquire(long heap) throws InterruptedException {
+        // A cancelled merge still uses an unknown amount of heap, so nothing new is started until it has stopped.
+        while (available < heap || zombies > 0) {
+            wait();
+        }
+        available -= heap;
+    }
+
+    private synchronized void release(long heap, Merge merge) {
+        available += heap;
+        merge.finished = true;
+        if (merge.cancelled) {
+            zombies--;
+        }
+        notifyAll();
+    }
+
+    private synchronized void cancel(Merge merge, Thread thread) {
+        if (!merge.finished) {
+            merge.cancelled = true;
+            zombies++;
+        }
+        thread.interrupt();
+    }
+
+    private synchronized boolean isLargest(Merge merge) {
+        // Cancelled merges are no longer watched, so the largest merge that can still be cancelled is picked.
+        return running.stream().filter(other -> !other.cancelled).allMatch(other -> other.cost <= merge.cost);
+    }
+
+    /**
+     * Method to get the fraction of the maximum heap that was in use right after the last collection of every heap pool.
+     */
+    private static double heapUsage() {
+        long used = 0;
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        for (MemoryPoolMXBean pool : pools) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (Objects.nonNull(usage)) {
+                used += usage.getUsed();
+            }
+        }
+        return (double) used / Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Method to summarise the admitted and cancelled merges.
+     *
+     * @return Human-readable summary of the statistics.
+     */
+    public String statistics() {
+        return String.format("Merge scheduler: %d merges admitted, %d timed out, %d cancelled over the memory limit, %d out of memory, %d still running of which %d cancelled, %d revisions estimated without an ID.",
+                admitted.get(), timedOut.get(), overMemory.get(), outOfMemory.get(), running.size(), zombieCount(), withoutId.get());
+    }
+
+    private synchronized int zombieCount() {
+        return zombies;
+    }
+
+    @Override
+    public void close() {
+        index.close();
+    }
+
+    /**
+     * Running merge, identified by the object itself. Its flags are guarded by the scheduler.
+     */
+    private static final class Merge {
+        private final long cost;
+        private boolean cancelled;
+        private boolean finished;
+
+        private Merge(long cost) {
+            this.cost = cost;
+        }
+    }
+
+}
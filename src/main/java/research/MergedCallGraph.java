@@ -0,0 +1,27 @@
+package research;
+
+import com.google.common.collect.BiMap;
+import eu.fasten.core.data.DirectedGraph;
+
+/**
+ * Merged callgraph of a dependent and its dependencies, together with the URIs of its nodes.
+ */
+public class MergedCallGraph {
+
+    private final DirectedGraph graph;
+    private final BiMap<Long, String> uris;
+
+    public MergedCallGraph(DirectedGraph graph, BiMap<Long, String> uris) {
+        this.graph = graph;
+        this.uris = uris;
+    }
+
+    public DirectedGraph getGraph() {
+        return graph;
+    }
+
+    public BiMap<Long, String> getUris() {
+        return uris;
+    }
+
+}
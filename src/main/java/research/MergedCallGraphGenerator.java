@@ -4,7 +4,6 @@ import com.google.common.collect.BiMap;
 import eu.fasten.core.data.DirectedGraph;
 import eu.fasten.core.data.callableindex.RocksDao;
 import eu.fasten.core.data.opal.MavenCoordinate;
-import eu.fasten.core.dbconnectors.PostgresConnector;
 import eu.fasten.core.maven.data.ResolvedRevision;
 import eu.fasten.core.maven.data.Revision;
 import eu.fasten.core.maven.data.Scope;
@@ -13,7 +12,7 @@ import eu.fasten.core.merge.CGMerger;
 import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
 import org.jooq.DSLContext;
 
-import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -24,20 +23,39 @@ import java.util.stream.Collectors;
 
 public class MergedCallGraphGenerator {
 
-    private static IMavenResolver resolver;
+    // Bound of the memory tier of the resolver cache in revisions, a few hundred megabytes of resolved sets.
+    private static final long RESOLVER_MEMORY_REVISIONS = 1000000;
+
+    private static CachingResolver resolver;
     private static RocksDao dao;
+    private static DSLContext dbContext;
+    private static MergedGraphCache cache;
+    private static UriDictionary dictionary;
+    private static MergeScheduler scheduler;
+    private static CallGraphWriter.Format outputFormat = CallGraphWriter.Format.BINARY;
+    private static Path outputRoot = Paths.get("input");
 
-    static {
-        try {
-            dao = new RocksDao(CallgraphGeneration.callableIndexUrl, true);
+    /**
+     * Method to set up the callable index and resolver, must be called before generating any callgraphs.
+     *
+     * @param callableIndexUrl   File path to the callable-index folder.
+     * @param temporaryFolderUrl File path to the temporary folder, may be null.
+     * @param resolverCacheUrl   File path to the persistent resolver cache, may be null.
+     */
+    public static void setup(String callableIndexUrl, String temporaryFolderUrl, String resolverCacheUrl) throws Exception {
+        dao = new RocksDao(callableIndexUrl, true);
 
-            String tempDirLoc = Objects.isNull(CallgraphGeneration.temporaryFolderUrl)
-                    ? String.format("%s/tmp", System.getProperty("user.dir"))
-                    : CallgraphGeneration.temporaryFolderUrl;
-            Files.createDirectories(Paths.get(tempDirLoc));
-            resolver = new MavenResolverIO(getDbContext(), new File(tempDirLoc)).loadResolver();
-        } catch (Exception e) {
-            e.printStackTrace();
+        Path temporaryFolder = ResolverLoader.temporaryFolder(temporaryFolderUrl);
+        resolver = new CachingResolver(() -> ResolverLoader.load(getDbContext(), temporaryFolder),
+                Objects.isNull(resolverCacheUrl) ? null : Paths.get(resolverCacheUrl), RESOLVER_MEMORY_REVISIONS);
+    }
+
+    /**
+     * Method to release the resources opened by {@link #setup}.
+     */
+    public static void close() {
+        if (Objects.nonNull(resolver)) {
+            resolver.close();
         }
     }
 
@@ -52,37 +70,70 @@ public class MergedCallGraphGenerator {
 
         return revisions.stream().collect(Collectors.toMap(
                 revision -> revision,
-                revision -> {
-                    try {
-                        // Get configuration for dependent resolution, either transitive or direct based on cli argument.
-                        var config = new ResolverConfig().depth(transitive ? ResolverDepth.TRANSITIVE : ResolverDepth.DIRECT);
-
-                        // Resolve dependents for revision, filter unique artefacts and removing testing frameworks.
-                        Set<String> uniqueArtefacts = new HashSet<>();
-                        var dependents = resolver.resolveDependents(revision, config)
-                                .stream()
-                                .filter(r -> uniqueArtefacts.add(r.getGroupId()))
-                                .filter(r -> List.of("test", "junit", "assertj", "mock").stream().noneMatch(r.getGroupId()::contains))
-                                .filter(r -> List.of("test", "junit", "assertj", "mock").stream().noneMatch(r.getArtifactId()::contains))
-                                .collect(Collectors.toSet());
-
-                        // Randomly sample a maximum of 100 dependents.
-                        var temporaryList = new ArrayList<>(dependents);
-                        Collections.shuffle(temporaryList);
-                        dependents = new HashSet<>(temporaryList.subList(0, Math.min(100, dependents.size())));
-
-                        // Store dependent information in a separate file.
-                        storeDependentsInformation(dependents, revision);
-                        return dependents;
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        System.out.format("Exception while resolving dependents for %s: %s", revision, e);
-                        return new ObjectLinkedOpenHashSet<>();
-                    }
-                }
+                revision -> generateDependents(revision, transitive)
         ));
     }
 
+    /**
+     * Method to generate the dependents of a single package.
+     *
+     * @param revision   Package to generate dependents of.
+     * @param transitive Whether dependents should be resolved transitively.
+     * @return Set of (at most 100) sampled dependents, empty if resolution failed.
+     */
+    public static Set<ResolvedRevision> generateDependents(Revision revision, boolean transitive) {
+        try {
+            return resolveDependents(revision, transitive);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Metrics.failed(e);
+            System.out.format("Exception while resolving dependents for %s: %s", revision, e);
+            return new ObjectLinkedOpenHashSet<>();
+        }
+    }
+
+    /**
+     * Method to resolve the dependents of a single package.
+     *
+     * @param revision   Package to resolve dependents of.
+     * @param transitive Whether dependents should be resolved transitively.
+     * @return Set of (at most 100) sampled dependents.
+     */
+    public static Set<ResolvedRevision> resolveDependents(Revision revision, boolean transitive) throws Exception {
+        // Get configuration for dependent resolution, either transitive or direct based on cli argument.
+        var config = new ResolverConfig().depth(transitive ? ResolverDepth.TRANSITIVE : ResolverDepth.DIRECT);
+
+        // Resolve dependents for revision, filter unique artefacts and removing testing frameworks.
+        long start = System.nanoTime();
+        var resolved = resolver.resolveDependents(revision, config);
+        Metrics.RESOLVE_DEPENDENTS.recordSince(start);
+        var dependents = filterDependents(resolved);
+
+        // Randomly sample a maximum of 100 dependents.
+        var temporaryList = new ArrayList<>(dependents);
+        Collections.shuffle(temporaryList);
+        dependents = new HashSet<>(temporaryList.subList(0, Math.min(100, dependents.size())));
+
+        // Store dependent information in a separate file.
+        storeDependentsInformation(dependents, revision);
+        return dependents;
+    }
+
+    /**
+     * Method to keep a single dependent per groupId, removing testing frameworks.
+     *
+     * @param dependents Resolved dependents.
+     * @return Filtered dependents.
+     */
+    static Set<ResolvedRevision> filterDependents(Set<ResolvedRevision> dependents) {
+        Set<String> uniqueArtefacts = new HashSet<>();
+        return dependents.stream()
+                .filter(r -> uniqueArtefacts.add(r.getGroupId()))
+                .filter(r -> List.of("test", "junit", "assertj", "mock").stream().noneMatch(r.getGroupId()::contains))
+                .filter(r -> List.of("test", "junit", "assertj", "mock").stream().noneMatch(r.getArtifactId()::contains))
+                .collect(Collectors.toSet());
+    }
+
     /**
      * Method to generate dependencies for a set of dependents.
      * NOTE: current revision is being added because of a bug in Fasten.
@@ -94,69 +145,239 @@ public class MergedCallGraphGenerator {
     public static Map<Revision, Set<ResolvedRevision>> generateDependenciesForDependents(Set<ResolvedRevision> dependents, Revision revisionToAnalyse) {
         return dependents.stream().collect(Collectors.toMap(
                 dependent -> dependent,
-                dependent -> {
-                    try {
-                        // // Resolve dependencies for dependent, filter unique artefacts and removing testing frameworks.
-                        Set<String> uniqueArtefacts = new HashSet<>();
-                        var dependencies = resolver.resolveDependencies(dependent)
-                                .stream()
-                                .filter(r -> uniqueArtefacts.add(String.format("%s:%s", r.getGroupId(), r.getArtifactId())))
-                                .filter(r -> List.of("test", "junit", "assertj", "mock").stream().noneMatch(r.getGroupId()::contains))
-                                .filter(r -> List.of("test", "junit", "assertj", "mock").stream().noneMatch(r.getArtifactId()::contains))
-                                .collect(Collectors.toSet());
-
-                        // Stop callgraph generation if the revision is not part of the dependencies of the dependent.
-                        if (!dependencies.contains(new ResolvedRevision(revisionToAnalyse, Scope.COMPILE))) {
-                            return new ObjectLinkedOpenHashSet<>();
-                        }
-
-                        // Store dependency information in a separate file.
-                        storeDependenciesInformation(dependencies, revisionToAnalyse, dependent);
-                        return dependencies;
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        System.out.format("Exception while resolving dependencies for %s as dependent of %s.", dependent, revisionToAnalyse);
-                        return new ObjectLinkedOpenHashSet<>();
-                    }
-                })
+                dependent -> generateDependencies(dependent, revisionToAnalyse))
         );
     }
 
+    /**
+     * Method to generate the dependencies of a single dependent.
+     *
+     * @param dependent         Dependent to generate the dependencies of.
+     * @param revisionToAnalyse Revision that is being analysed.
+     * @return Set of dependencies, empty if the analysed revision is not one of them or resolution failed.
+     */
+    public static Set<ResolvedRevision> generateDependencies(Revision dependent, Revision revisionToAnalyse) {
+        try {
+            return resolveDependencies(dependent, revisionToAnalyse);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Metrics.failed(e);
+            System.out.format("Exception while resolving dependencies for %s as dependent of %s.", dependent, revisionToAnalyse);
+            return new ObjectLinkedOpenHashSet<>();
+        }
+    }
+
+    /**
+     * Method to resolve the dependencies of a single dependent.
+     *
+     * @param dependent         Dependent to resolve the dependencies of.
+     * @param revisionToAnalyse Revision that is being analysed.
+     * @return Set of dependencies, empty if the analysed revision is not one of them.
+     */
+    public static Set<ResolvedRevision> resolveDependencies(Revision dependent, Revision revisionToAnalyse) throws Exception {
+        // // Resolve dependencies for dependent, filter unique artefacts and removing testing frameworks.
+        long start = System.nanoTime();
+        var resolved = resolver.resolveDependencies(dependent);
+        Metrics.RESOLVE_DEPENDENCIES.recordSince(start);
+        var dependencies = filterDependencies(resolved);
+
+        // Stop callgraph generation if the revision is not part of the dependencies of the dependent.
+        if (!dependencies.contains(new ResolvedRevision(revisionToAnalyse, Scope.COMPILE))) {
+            return new ObjectLinkedOpenHashSet<>();
+        }
+
+        // Store dependency information in a separate file.
+        storeDependenciesInformation(dependencies, revisionToAnalyse, dependent);
+        return dependencies;
+    }
+
+    /**
+     * Method to keep a single dependency per groupId and artifactId, removing testing frameworks.
+     *
+     * @param dependencies Resolved dependencies.
+     * @return Filtered dependencies.
+     */
+    static Set<ResolvedRevision> filterDependencies(Set<ResolvedRevision> dependencies) {
+        Set<String> uniqueArtefacts = new HashSet<>();
+        return dependencies.stream()
+                .filter(r -> uniqueArtefacts.add(String.format("%s:%s", r.getGroupId(), r.getArtifactId())))
+                .filter(r -> List.of("test", "junit", "assertj", "mock").stream().noneMatch(r.getGroupId()::contains))
+                .filter(r -> List.of("test", "junit", "assertj", "mock").stream().noneMatch(r.getArtifactId()::contains))
+                .collect(Collectors.toSet());
+    }
+
     /**
      * Method to generate and store callgraphs for a map of dependents.
      *  @param dependents        Map representing the dependencies of a dependent.
      * @param revisionToAnalyse Revision that is being analysed, only used for generating output filenames.
      */
     public static void generateAndStoreCallGraphForDependents(Map<Revision, Set<ResolvedRevision>> dependents, Revision revisionToAnalyse) {
-        dependents.forEach(
-                (dependent, dependencies) -> {
+        // Merge the most expensive dependents first.
+        dependents.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Revision, Set<ResolvedRevision>> e) -> estimateMergeCost(e.getKey(), e.getValue())).reversed())
+                .forEachOrdered(e -> {
                     try {
-                        // Extract the list of Maven coordinates to create the callgraph from.
-                        List<String> coords = dependencies.stream().map(d -> String.format("%s:%s:%s", d.getGroupId(), d.getArtifactId(), d.version))
-                                .collect(Collectors.toList());
-                        coords.add(String.format("%s:%s:%s", dependent.getGroupId(), dependent.getArtifactId(), dependent.version));
-
-                        // Create a single callgraph of a dependent and its dependencies.
-                        CGMerger merger = new CGMerger(coords, getDbContext(), dao);
-                        DirectedGraph callgraph = merger.mergeAllDeps();
-                        BiMap<Long, String> uris = merger.getAllUrisFromDB(callgraph);
-
-                        // Extract callgraph and URI information and store into separate files.
-                        Path cgPath = Paths.get(String.format("input/%s_%s_%s/%s_%s_%s/callgraph.csv", revisionToAnalyse.getGroupId(), revisionToAnalyse.getArtifactId(), revisionToAnalyse.version, dependent.getGroupId(), dependent.getArtifactId(), dependent.version));
-                        Path uriPath = Paths.get(String.format("input/%s_%s_%s/%s_%s_%s/uris.csv", revisionToAnalyse.getGroupId(), revisionToAnalyse.getArtifactId(), revisionToAnalyse.version, dependent.getGroupId(), dependent.getArtifactId(), dependent.version));
-
-                        List<String> cgData = callgraph.edgeSet().stream().map(x -> x.firstLong() + "," + x.secondLong()).collect(Collectors.toList());
-                        List<String> uriData = uris.entrySet().stream().map(e -> String.format("%s,\"%s\"", e.getKey(), e.getValue())).collect(Collectors.toList());
-                        cgData.add(0, "source,target");
-                        uriData.add(0, "id,uri");
-
-                        writeToFile(cgPath, cgData);
-                        writeToFile(uriPath, uriData);
-                    } catch (Exception e) {
-                        e.printStackTrace();
+                        storeCallGraph(generateCallGraph(e.getKey(), e.getValue()), e.getKey(), revisionToAnalyse);
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
+                        Metrics.failed(ex);
                     }
+                });
+    }
+
+    /**
+     * Method to estimate the cost of merging the callgraph of a dependent and its dependencies.
+     *
+     * @param dependent    Dependent to generate the callgraph of.
+     * @param dependencies Dependencies of the dependent.
+     * @return Estimated cost, the size of the callgraphs in the callable index if a scheduler is used, otherwise the
+     * number of revisions.
+     */
+    public static long estimateMergeCost(Revision dependent, Set<ResolvedRevision> dependencies) {
+        if (Objects.isNull(scheduler)) {
+            return dependencies.size() + 1;
+        }
+        return scheduler.estimate(dependencies) + scheduler.estimate(List.of(dependent));
+    }
+
+    /**
+     * Method to create a single callgraph of a dependent and its dependencies.
+     *
+     * @param dependent    Dependent to generate the callgraph of.
+     * @param dependencies Dependencies of the dependent.
+     * @return Merged callgraph together with the URIs of its nodes.
+     */
+    public static MergedCallGraph generateCallGraph(Revision dependent, Set<ResolvedRevision> dependencies) throws Exception {
+        // Extract the list of Maven coordinates to create the callgraph from.
+        List<String> coords = dependencies.stream().map(d -> String.format("%s:%s:%s", d.getGroupId(), d.getArtifactId(), d.version))
+                .collect(Collectors.toList());
+        coords.add(String.format("%s:%s:%s", dependent.getGroupId(), dependent.getArtifactId(), dependent.version));
+
+        // Reuse a previous merge of exactly the same coordinates, if cached.
+        String key = Objects.isNull(cache) ? null : MergedGraphCache.key(coords);
+        if (Objects.nonNull(key)) {
+            MergedCallGraph cached = cache.get(key);
+            if (Objects.nonNull(cached)) {
+                // The cache may have been filled without the dictionary, which writes the URIs of the target.
+                if (Objects.nonNull(dictionary)) {
+                    dictionary.add(cached.getUris());
                 }
-        );
+                return cached;
+            }
+        }
+
+        // Create a single callgraph of a dependent and its dependencies.
+        long start = System.nanoTime();
+        CGMerger merger = new CGMerger(coords, getDbContext(), dao);
+        DirectedGraph callgraph = Objects.isNull(scheduler)
+                ? merger.mergeAllDeps()
+                : scheduler.run(coords.get(coords.size() - 1), estimateMergeCost(dependent, dependencies), merger::mergeAllDeps);
+        Metrics.MERGE.recordSince(start);
+
+        start = System.nanoTime();
+        BiMap<Long, String> uris = Objects.isNull(dictionary) ? merger.getAllUrisFromDB(callgraph) : dictionary.urisOf(callgraph);
+        Metrics.URIS.recordSince(start);
+
+        MergedCallGraph merged = new MergedCallGraph(callgraph, uris);
+        if (Objects.nonNull(key)) {
+            cache.put(key, merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Method to summarise the hit and miss counts of the resolver cache.
+     *
+     * @return Human-readable summary of the statistics.
+     */
+    public static String resolverStatistics() {
+        return Objects.isNull(resolver) ? "Resolver cache: not initialised." : resolver.statistics();
+    }
+
+    /**
+     * Method to enable caching of merged callgraphs.
+     *
+     * @param mergeCache Cache to look up and store merged callgraphs in.
+     */
+    public static void useMergeCache(MergedGraphCache mergeCache) {
+        cache = mergeCache;
+    }
+
+    /**
+     * Method to look up URIs in a run-wide dictionary, which writes them once per target instead of once per dependent.
+     *
+     * @param uriDictionary Dictionary to look up URIs in.
+     */
+    public static void useUriDictionary(UriDictionary uriDictionary) {
+        dictionary = uriDictionary;
+    }
+
+    /**
+     * Method to run merges through a scheduler, which admits them against a heap budget and cancels them on a time or
+     * memory limit.
+     *
+     * @param mergeScheduler Scheduler to run merges through.
+     */
+    public static void useMergeScheduler(MergeScheduler mergeScheduler) {
+        scheduler = mergeScheduler;
+    }
+
+    /**
+     * Method to store a merged callgraph of a dependent.
+     *
+     * @param callgraph         Merged callgraph to store.
+     * @param dependent         Dependent of which the callgraph is generated.
+     * @param revisionToAnalyse Revision that is being analysed, only used for generating output filenames.
+     */
+    public static void storeCallGraph(MergedCallGraph callgraph, Revision dependent, Revision revisionToAnalyse) throws IOException {
+        // Stream callgraph and URI information straight from the graph into separate files.
+        long start = System.nanoTime();
+        Path directory = outputFolderOf(revisionToAnalyse, dependent);
+        long bytes = CallGraphWriter.writeEdges(directory.resolve(CallGraphWriter.callgraphFileName(outputFormat)), callgraph.getGraph(), outputFormat);
+        if (Objects.isNull(dictionary)) {
+            bytes += CallGraphWriter.writeUris(directory.resolve(CallGraphWriter.urisFileName(outputFormat)), callgraph.getUris(), outputFormat);
+        }
+        Metrics.WRITE.recordSince(start);
+        Metrics.BYTES_WRITTEN.record(bytes);
+    }
+
+    /**
+     * Method to get the folder in which the callgraphs of all dependents of a target are stored.
+     *
+     * @param revisionToAnalyse Revision that is being analysed.
+     * @return Path to the folder of the target.
+     */
+    public static Path outputFolderOf(Revision revisionToAnalyse) {
+        return outputRoot.resolve(String.format("%s_%s_%s", revisionToAnalyse.getGroupId(), revisionToAnalyse.getArtifactId(), revisionToAnalyse.version));
+    }
+
+    /**
+     * Method to get the folder in which the callgraph of a dependent is stored.
+     *
+     * @param revisionToAnalyse Revision that is being analysed.
+     * @param dependent         Dependent of which the callgraph is generated.
+     * @return Path to the folder of the dependent.
+     */
+    public static Path outputFolderOf(Revision revisionToAnalyse, Revision dependent) {
+        return outputFolderOf(revisionToAnalyse).resolve(String.format("%s_%s_%s", dependent.getGroupId(), dependent.getArtifactId(), dependent.version));
+    }
+
+    /**
+     * Method to set the folder in which the folders of all targets are stored, `input` by default.
+     *
+     * @param folder Root of the output tree.
+     */
+    public static void useOutputRoot(Path folder) {
+        outputRoot = folder;
+    }
+
+    /**
+     * Method to set the format callgraphs are stored in.
+     *
+     * @param format Output format of the callgraph and URI files.
+     */
+    public static void useOutputFormat(CallGraphWriter.Format format) {
+        outputFormat = format;
     }
 
     /**
@@ -165,7 +386,7 @@ public class MergedCallGraphGenerator {
      * @param r          Package to analyse.
      */
     private static void storeDependentsInformation(Set<ResolvedRevision> dependents, Revision r) {
-        Path path = Paths.get(String.format("input/%s_%s_%s/dependents.txt", r.getGroupId(), r.getArtifactId(), r.version));
+        Path path = outputFolderOf(r).resolve("dependents.txt");
         List<String> data = dependents.stream().map(x -> String.format("%s_%s_%s", x.getGroupId(), x.getArtifactId(), x.version)).collect(Collectors.toList());
         writeToFile(path, data);
     }
@@ -177,21 +398,22 @@ public class MergedCallGraphGenerator {
      * @param d            Dependent of which the callgraph is generated.
      */
     private static void storeDependenciesInformation(Set<ResolvedRevision> dependencies, Revision r, Revision d) {
-        Path path = Paths.get(String.format("input/%s_%s_%s/%s_%s_%s/dependencies.txt", r.getGroupId(), r.getArtifactId(), r.version, d.getGroupId(), d.getArtifactId(), d.version));
+        Path path = outputFolderOf(r, d).resolve("dependencies.txt");
         List<String> data = dependencies.stream().map(x -> String.format("%s_%s_%s", x.getGroupId(), x.getArtifactId(), x.version)).collect(Collectors.toList());
         writeToFile(path, data);
     }
 
     /**
-     * Method to write a list of strings to a file.
+     * Method to write a list of strings to a file, which only appears once it has been written completely.
      *
      * @param path Path to the file.
      * @param data Data to write to the file.
      */
     private static void writeToFile(Path path, List<String> data) {
         try {
-            Files.createDirectories(path.getParent());
-            Files.write(path, data, StandardCharsets.UTF_8);
+            Path temporary = CallGraphWriter.temporaryFileOf(path);
+            Files.write(temporary, data, StandardCharsets.UTF_8);
+            CallGraphWriter.publish(temporary, path);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -203,18 +425,42 @@ public class MergedCallGraphGenerator {
      * @param pkg Package in strong format.
      * @return `Revision` object of the package.
      */
-    private static Revision revisionFromString(String pkg) {
+    static Revision revisionFromString(String pkg) {
         MavenCoordinate coordinate = MavenCoordinate.fromString(pkg, null);
         return new Revision(coordinate.getGroupID(), coordinate.getArtifactID(), coordinate.getVersionConstraint(), new Timestamp(-1));
     }
 
     /**
-     * Method to get the current database context.
+     * Method to generate a `Revision` object with a known package version ID from a package in string format.
+     *
+     * @param pkg Package in string format.
+     * @param id  ID of the package version in the metadata database.
+     * @return `Revision` object of the package.
+     */
+    static Revision revisionFromString(String pkg, long id) {
+        MavenCoordinate coordinate = MavenCoordinate.fromString(pkg, null);
+        return new Revision(id, coordinate.getGroupID(), coordinate.getArtifactID(), coordinate.getVersionConstraint(), new Timestamp(-1));
+    }
+
+    /**
+     * Method to use a callable index and database context other than the ones opened by {@link #setup}, such as the
+     * synthetic ones of the benchmarks.
+     *
+     * @param callableIndex Callable index to load the callgraphs of revisions from.
+     * @param context       Database context to query, or null to use the shared one.
+     */
+    static void useSources(RocksDao callableIndex, DSLContext context) {
+        dao = callableIndex;
+        dbContext = context;
+    }
+
+    /**
+     * Method to get the shared database context.
      *
-     * @return Database context, if found.
+     * @return Database context backed by the shared connection pool, unless another context is used.
      */
-    private static DSLContext getDbContext() throws Exception {
-        return PostgresConnector.getDSLContext("jdbc:postgresql://host.docker.internal:5432/fasten_java", "fasten", false);
+    private static DSLContext getDbContext() {
+        return Objects.isNull(dbContext) ? Database.getContext() : dbContext;
     }
 
 }
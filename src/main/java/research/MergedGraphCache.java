@@ -0,0 +1,272 @@
+package research;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import eu.fasten.core.data.ArrayImmutableDirectedGraph;
+import eu.fasten.core.data.DirectedGraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of merged callgraphs, keyed by a hash of the sorted list of Maven coordinates that were merged.
+ * Entries live in a small in-memory tier and in a size-bounded directory on disk, both evicting the least recently used
+ * entry first. Since entries are only published by an atomic rename, the cache survives (and is reused after) a crash.
+ */
+public class MergedGraphCache {
+
+    private static final int MAGIC = 0x4D434731; // "MCG1"
+    private static final String EXTENSION = ".mcg";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, MergedCallGraph> memory;
+    private final AtomicLong bytesOnDisk = new AtomicLong();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    /**
+     * @param directory     Directory to store the cached callgraphs in.
+     * @param maxBytes      Maximum total size of the cached callgraphs on disk.
+     * @param memoryEntries Maximum number of callgraphs kept in memory.
+     */
+    public MergedGraphCache(Path directory, long maxBytes, int memoryEntries) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MergedCallGraph> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            bytesOnDisk.set(files.filter(f -> f.toString().endsWith(EXTENSION)).mapToLong(f -> f.toFile().length()).sum());
+        }
+    }
+
+    /**
+     * Method to compute the cache key of a set of Maven coordinates, independent of their order.
+     *
+     * @param coordinates Maven coordinates that are merged.
+     * @return Hex-encoded SHA-256 hash of the sorted coordinates.
+     */
+    public static String key(List<String> coordinates) {
+        try {
+            String joined = coordinates.stream().sorted().collect(Collectors.joining("\n"));
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(joined.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Method to look up a merged callgraph.
+     *
+     * @param key Cache key of the merged coordinates.
+     * @return Cached callgraph, or null if it is not cached.
+     */
+    public MergedCallGraph get(String key) {
+        synchronized (memory) {
+            MergedCallGraph callgraph = memory.get(key);
+            if (Objects.nonNull(callgraph)) {
+                memoryHits.incrementAndGet();
+                return callgraph;
+            }
+        }
+
+        Path path = pathOf(key);
+        if (Files.exists(path)) {
+            try {
+                MergedCallGraph callgraph = read(path);
+                Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+                synchronized (memory) {
+                    memory.put(key, callgraph);
+                }
+                diskHits.incrementAndGet();
+                return callgraph;
+            } catch (IOException e) {
+                // A corrupt entry is treated as a miss and overwritten by the next put.
+                System.out.format("Could not read cached callgraph %s: %s%n", path, e);
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Method to store a merged callgraph. A callgraph that cannot be written to disk, for example because the disk is
+     * full, is only kept in memory, since the cache is merely an optimisation.
+     *
+     * @param key       Cache key of the merged coordinates.
+     * @param callgraph Merged callgraph to store.
+     */
+    public void put(String key, MergedCallGraph callgraph) {
+        synchronized (memory) {
+            memory.put(key, callgraph);
+        }
+
+        Path path = pathOf(key);
+        try {
+            Path temporary = Files.createTempFile(directory, key, ".tmp");
+            try {
+                write(temporary, callgraph);
+                long previous = Files.exists(path) ? Files.size(path) : 0;
+                CallGraphWriter.publish(temporary, path);
+                bytesOnDisk.addAndGet(Files.size(path) - previous);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            evict();
+        } catch (IOException e) {
+            failedWrites.incrementAndGet();
+            System.out.format("Could not write cached callgraph %s: %s%n", path, e);
+        }
+    }
+
+    /**
+     * Method to summarise the hit and miss counts of the cache.
+     *
+     * @return Human-readable summary of the statistics.
+     */
+    public String statistics() {
+        return String.format("Merge cache: %d memory hits, %d disk hits, %d misses, %d failed writes, %.1f MB on disk.",
+                memoryHits.get(), diskHits.get(), misses.get(), failedWrites.get(), bytesOnDisk.get() / 1e6);
+    }
+
+    private Path pathOf(String key) {
+        return directory.resolve(key + EXTENSION);
+    }
+
+    /**
+     * Method to remove the least recently used entries from disk until the cache fits its size bound.
+     */
+    private synchronized void evict() throws IOException {
+        if (bytesOnDisk.get() <= maxBytes) {
+            return;
+        }
+
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(directory)) {
+            entries = files.filter(f -> f.toString().endsWith(EXTENSION))
+                    .sorted(Comparator.comparingLong(f -> f.toFile().lastModified()))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        for (Path entry : entries) {
+            if (bytesOnDisk.get() <= maxBytes) {
+                break;
+            }
+            long size = Files.size(entry);
+            if (Files.deleteIfExists(entry)) {
+                bytesOnDisk.addAndGet(-size);
+            }
+        }
+    }
+
+    /**
+     * Method to write a merged callgraph: sorted nodes and successor lists as delta-encoded varints, followed by the URIs.
+     */
+    private static void write(Path path, MergedCallGraph callgraph) throws IOException {
+        DirectedGraph graph = callgraph.getGraph();
+        long[] nodes = graph.nodes().toLongArray();
+        Arrays.sort(nodes);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            VarInts.write(out, nodes.length);
+            long previous = 0;
+            for (long node : nodes) {
+                VarInts.write(out, node - previous);
+                out.writeBoolean(graph.isExternal(node));
+                previous = node;
+            }
+
+            for (long node : nodes) {
+                long[] successors = graph.successors(node).toLongArray();
+                Arrays.sort(successors);
+                VarInts.write(out, successors.length);
+                long previousSuccessor = 0;
+                for (long successor : successors) {
+                    VarInts.write(out, successor - previousSuccessor);
+                    previousSuccessor = successor;
+                }
+            }
+
+            VarInts.write(out, callgraph.getUris().size());
+            for (Map.Entry<Long, String> uri : callgraph.getUris().entrySet()) {
+                byte[] bytes = uri.getValue().getBytes(StandardCharsets.UTF_8);
+                VarInts.write(out, uri.getKey());
+                VarInts.write(out, bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static MergedCallGraph read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cached callgraph");
+            }
+
+            var builder = new ArrayImmutableDirectedGraph.Builder();
+            long[] nodes = new long[(int) VarInts.read(in)];
+            long previous = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = previous + VarInts.read(in);
+                previous = nodes[i];
+                if (in.readBoolean()) {
+                    builder.addExternalNode(nodes[i]);
+                } else {
+                    builder.addInternalNode(nodes[i]);
+                }
+            }
+
+            for (long node : nodes) {
+                long successor = 0;
+                for (long i = VarInts.read(in); i > 0; i--) {
+                    successor += VarInts.read(in);
+                    builder.addArc(node, successor);
+                }
+            }
+
+            BiMap<Long, String> uris = HashBiMap.create();
+            for (long i = VarInts.read(in); i > 0; i--) {
+                long id = VarInts.read(in);
+                byte[] bytes = new byte[(int) VarInts.read(in)];
+                in.readFully(bytes);
+                uris.put(id, new String(bytes, StandardCharsets.UTF_8));
+            }
+            return new MergedCallGraph(builder.build(), uris);
+        }
+    }
+
+}
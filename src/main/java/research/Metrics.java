@@ -0,0 +1,404 @@
+package research;
+
+import eu.fasten.core.maven.data.Revision;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Timers, size histograms, failure counters and progress of a callgraph generation run.
+ * All metrics are registered as MXBeans under `research:type=Metrics`, and can periodically be written to a JSON
+ * snapshot file, such that a long run can be followed without attaching a debugger.
+ */
+public class Metrics {
+
+    public static final Histogram RESOLVE_DEPENDENTS = new Histogram("resolve-dependents", "ms", 1e6);
+    public static final Histogram RESOLVE_DEPENDENCIES = new Histogram("resolve-dependencies", "ms", 1e6);
+    public static final Histogram MERGE = new Histogram("merge", "ms", 1e6);
+    public static final Histogram URIS = new Histogram("uris", "ms", 1e6);
+    public static final Histogram WRITE = new Histogram("write", "ms", 1e6);
+    public static final Histogram GRAPH_NODES = new Histogram("graph-nodes", "nodes", 1);
+    public static final Histogram GRAPH_EDGES = new Histogram("graph-edges", "edges", 1);
+    public static final Histogram BYTES_WRITTEN = new Histogram("bytes-written", "bytes", 1);
+
+    private static final List<Histogram> HISTOGRAMS = List.of(RESOLVE_DEPENDENTS, RESOLVE_DEPENDENCIES, MERGE, URIS, WRITE,
+            GRAPH_NODES, GRAPH_EDGES, BYTES_WRITTEN);
+    private static final int LARGEST_GRAPHS = 10;
+    private static final Progress PROGRESS = new Progress();
+
+    private static final long startNanos = System.nanoTime();
+    private static final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    private static final PriorityQueue<Graph> largestGraphs = new PriorityQueue<>(Comparator.comparingLong((Graph g) -> g.edges));
+    private static final LongAdder targets = new LongAdder();
+    private static final LongAdder targetsCompleted = new LongAdder();
+    private static final LongAdder dependents = new LongAdder();
+    private static final LongAdder dependentsFinished = new LongAdder();
+
+    private static ScheduledExecutorService scheduler;
+    private static Path snapshotFile;
+
+    /**
+     * Method to register the metrics with JMX and periodically write a snapshot of them.
+     *
+     * @param file            File to write the snapshot to, or null to only expose the metrics through JMX.
+     * @param intervalSeconds Number of seconds between two snapshots.
+     */
+    public static synchronized void start(Path file, long intervalSeconds) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (Histogram histogram : HISTOGRAMS) {
+                ObjectName name = new ObjectName("research:type=Metrics,name=" + histogram.name);
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(histogram, name);
+                }
+            }
+            ObjectName progress = new ObjectName("research:type=Metrics,name=progress");
+            if (!server.isRegistered(progress)) {
+                server.registerMBean(PROGRESS, progress);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+            System.out.format("Exception while registering metrics with JMX: %s%n", e);
+        }
+
+        if (Objects.nonNull(file) && Objects.isNull(scheduler)) {
+            snapshotFile = file;
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(Metrics::writeSnapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Method to stop the periodic snapshots, writing a final snapshot.
+     */
+    public static synchronized void stop() {
+        if (Objects.nonNull(scheduler)) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Method to count a failure by the type of its exception.
+     */
+    public static void failed(Throwable cause) {
+        failures.computeIfAbsent(cause.getClass().getName(), c -> new LongAdder()).increment();
+    }
+
+    /**
+     * Method to record the size of a merged callgraph, keeping track of the largest ones.
+     */
+    public static void recordGraph(Revision target, Revision dependent, long nodes, long edges) {
+        GRAPH_NODES.record(nodes);
+        GRAPH_EDGES.record(edges);
+        synchronized (largestGraphs) {
+            largestGraphs.add(new Graph(ProgressManifest.coordinate(target), ProgressManifest.coordinate(dependent), nodes, edges));
+            if (largestGraphs.size() > LARGEST_GRAPHS) {
+                largestGraphs.poll();
+            }
+        }
+    }
+
+    /**
+     * Method to add targets to the total number of targets of the run.
+     */
+    public static void addTargets(long count) {
+        targets.add(count);
+    }
+
+    /**
+     * Method to count a completed target.
+     */
+    public static void targetCompleted() {
+        targetsCompleted.increment();
+    }
+
+    /**
+     * Method to add dependents to the total number of dependents of the run.
+     */
+    public static void addDependents(long count) {
+        dependents.add(count);
+    }
+
+    /**
+     * Method to count a dependent that has been stored or dropped.
+     */
+    public static void dependentFinished() {
+        dependentsFinished.increment();
+    }
+
+    /**
+     * Method to get the progress of the run.
+     */
+    public static ProgressMXBean progress() {
+        return PROGRESS;
+    }
+
+    /**
+     * Method to estimate the remaining time of the run from the average time per completed target.
+     *
+     * @return Estimated number of seconds until all targets are completed, or -1 if no target has been completed yet.
+     */
+    public static long etaSeconds() {
+        long completed = targetsCompleted.sum();
+        if (completed == 0) {
+            return -1;
+        }
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        return Math.round(elapsed / completed * Math.max(0, targets.sum() - completed));
+    }
+
+    /**
+     * Method to summarise the metrics gathered so far.
+     *
+     * @return Human-readable summary of the statistics.
+     */
+    public static String statistics() {
+        return String.format(Locale.ROOT, "Metrics: %d/%d targets, %d/%d dependents, merge avg %.2f ms (p99 %.2f ms), %d bytes written, failures %s.",
+                targetsCompleted.sum(), targets.sum(), dependentsFinished.sum(), dependents.sum(),
+                MERGE.getMean(), MERGE.getP99(), BYTES_WRITTEN.sum.sum(), failureCounts());
+    }
+
+    private static Map<String, Long> failureCounts() {
+        return failures.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum(), (a, b) -> a, TreeMap::new));
+    }
+
+    /**
+     * Method to write all metrics as a JSON object. The file only appears once it has been written completely.
+     */
+    private static void writeSnapshot() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append(String.format(Locale.ROOT, "  \"timestamp\": \"%s\",%n", Instant.now()));
+        json.append(String.format(Locale.ROOT, "  \"elapsedSeconds\": %d,%n", (System.nanoTime() - startNanos) / 1_000_000_000L));
+        json.append(String.format(Locale.ROOT, "  \"progress\": {\"targets\": %d, \"targetsCompleted\": %d, \"dependents\": %d, \"dependentsFinished\": %d, \"etaSeconds\": %d},%n",
+                targets.sum(), targetsCompleted.sum(), dependents.sum(), dependentsFinished.sum(), etaSeconds()));
+
+        json.append("  \"histograms\": {\n");
+        json.append(HISTOGRAMS.stream().map(h -> String.format(Locale.ROOT,
+                "    \"%s\": {\"unit\": \"%s\", \"count\": %d, \"mean\": %.3f, \"p50\": %.3f, \"p90\": %.3f, \"p99\": %.3f, \"max\": %.3f}",
+                h.name, h.unit, h.getCount(), h.getMean(), h.getP50(), h.getP90(), h.getP99(), h.getMax())).collect(Collectors.joining(",\n")));
+        json.append("\n  },\n");
+
+        json.append("  \"failures\": {");
+        json.append(failureCounts().entrySet().stream().map(e -> String.format("\"%s\": %d", e.getKey(), e.getValue())).collect(Collectors.joining(", ")));
+        json.append("},\n");
+
+        json.append("  \"largestGraphs\": [");
+        synchronized (largestGraphs) {
+            json.append(largestGraphs.stream().sorted(Comparator.comparingLong((Graph g) -> g.edges).reversed())
+                    .map(g -> String.format("{\"target\": \"%s\", \"dependent\": \"%s\", \"nodes\": %d, \"edges\": %d}", g.target, g.dependent, g.nodes, g.edges))
+                    .collect(Collectors.joining(", ")));
+        }
+        json.append("]\n}\n");
+
+        try {
+            Path temporary = CallGraphWriter.temporaryFileOf(snapshotFile);
+            Files.write(temporary, json.toString().getBytes(StandardCharsets.UTF_8));
+            CallGraphWriter.publish(temporary, snapshotFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.format("Exception while writing metrics to %s: %s%n", snapshotFile, e);
+        }
+    }
+
+    /**
+     * Attributes of a histogram exposed through JMX, in the unit of the histogram.
+     */
+    public interface HistogramMXBean {
+        String getUnit();
+
+        long getCount();
+
+        double getMean();
+
+        double getP50();
+
+        double getP90();
+
+        double getP99();
+
+        double getMax();
+    }
+
+    /**
+     * Attributes of the progress of the run exposed through JMX.
+     */
+    public interface ProgressMXBean {
+        long getTargets();
+
+        long getTargetsCompleted();
+
+        long getDependents();
+
+        long getDependentsFinished();
+
+        long getEtaSeconds();
+
+        Map<String, Long> getFailures();
+    }
+
+    /**
+     * Histogram with power-of-two buckets, so recording a value is a few atomic increments. Percentiles are estimated
+     * by the upper bound of their bucket, which is at most twice the actual value.
+     */
+    public static final class Histogram implements HistogramMXBean {
+        private final String name;
+        private final String unit;
+        private final double scale;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+        private Histogram(String name, String unit, double scale) {
+            this.name = name;
+            this.unit = unit;
+            this.scale = scale;
+        }
+
+        /**
+         * Method to record a value in the raw unit of the histogram.
+         */
+        public void record(long value) {
+            value = Math.max(0, value);
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+        }
+
+        /**
+         * Method to record the time elapsed since a start time taken from {@link System#nanoTime()}.
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        @Override
+        public String getUnit() {
+            return unit;
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / scale / n;
+        }
+
+        @Override
+        public double getP50() {
+            return percentile(0.5);
+        }
+
+        @Override
+        public double getP90() {
+            return percentile(0.9);
+        }
+
+        @Override
+        public double getP99() {
+            return percentile(0.99);
+        }
+
+        @Override
+        public double getMax() {
+            return max.get() / scale;
+        }
+
+        private double percentile(double p) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(p * n);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    long upper = i == 0 ? 0 : (1L << i) - 1;
+                    return Math.min(upper, max.get()) / scale;
+                }
+            }
+            return max.get() / scale;
+        }
+    }
+
+    private static final class Progress implements ProgressMXBean {
+        @Override
+        public long getTargets() {
+            return targets.sum();
+        }
+
+        @Override
+        public long getTargetsCompleted() {
+            return targetsCompleted.sum();
+        }
+
+        @Override
+        public long getDependents() {
+            return dependents.sum();
+        }
+
+        @Override
+        public long getDependentsFinished() {
+            return dependentsFinished.sum();
+        }
+
+        @Override
+        public long getEtaSeconds() {
+            return etaSeconds();
+        }
+
+        @Override
+        public Map<String, Long> getFailures() {
+            return failureCounts();
+        }
+    }
+
+    private static final class Graph {
+        private final String target;
+        private final String dependent;
+        private final long nodes;
+        private final long edges;
+
+        private Graph(String target, String dependent, long nodes, long edges) {
+            this.target = target;
+            this.dependent = dependent;
+            this.nodes = nodes;
+            this.edges = edges;
+        }
+    }
+
+}
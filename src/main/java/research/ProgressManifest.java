@@ -0,0 +1,253 @@
+package research;
+
+import eu.fasten.core.maven.data.Revision;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Durable, append-only record of the progress of every (target, dependent) pair, used to resume an interrupted run.
+ * Every line holds `target, dependent, state, reason` separated by tabs, where the dependent is `-` for the state of the
+ * target itself. The last line of a pair determines its state, and a new resolution of a target forgets its old pairs.
+ * The reason of a resolved dependent holds its package version ID, such that its merge cost can be estimated on resume.
+ * A target is marked `COMPLETED` once all of its dependents have been processed and the completion listeners succeeded.
+ * Completed targets are skipped on resume, and also when retrying failures unless they have something to retry.
+ */
+public class ProgressManifest implements CallgraphPipeline.Listener {
+
+    public enum State { RESOLVED, MERGED, WRITTEN, SKIPPED, FAILED, COMPLETED }
+
+    public enum Mode {
+        /** Process everything, only recording the progress. */
+        FRESH,
+        /** Skip targets that have been completed and pairs that have been written by a previous run. */
+        RESUME,
+        /** Only process the targets and pairs that failed in a previous run. */
+        RETRY_FAILED
+    }
+
+    private static final String TARGET = "-";
+
+    private final Mode mode;
+    private final FileChannel channel;
+    private final Map<String, Map<String, State>> previous = new ConcurrentHashMap<>();
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> ids = new ConcurrentHashMap<>();
+
+    /**
+     * @param path Path to the manifest, created if it does not exist.
+     * @param mode Which of the previously recorded work should be processed again.
+     */
+    public ProgressManifest(Path path, Mode mode) throws IOException {
+        this.mode = mode;
+        if (mode != Mode.FRESH && Files.exists(path)) {
+            load(path);
+        }
+        if (Objects.nonNull(path.getParent())) {
+            Files.createDirectories(path.getParent());
+        }
+        boolean torn = endsWithTornLine(path);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        // Terminate a torn last line, such that it does not corrupt the first line of this run.
+        if (torn) {
+            append("\n");
+        }
+    }
+
+    private static boolean endsWithTornLine(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            return false;
+        }
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            in.read(last, in.size() - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    private void load(Path path) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                // A torn last line of a crashed run is ignored.
+                if (fields.length < 4) {
+                    continue;
+                }
+                State state;
+                try {
+                    state = State.valueOf(fields[2]);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+
+                // Completion is kept apart from the state of the target, which still holds its resolution.
+                if (fields[1].equals(TARGET) && state == State.COMPLETED) {
+                    completed.add(fields[0]);
+                    continue;
+                }
+                if (fields[1].equals(TARGET) && state == State.RESOLVED) {
+                    previous.put(fields[0], new LinkedHashMap<>());
+                    completed.remove(fields[0]);
+                }
+                if (!fields[1].equals(TARGET) && state == State.RESOLVED && fields[3].matches("\\d+")) {
+                    ids.put(fields[1], Long.parseLong(fields[3]));
+                }
+                previous.computeIfAbsent(fields[0], t -> new LinkedHashMap<>()).put(fields[1], state);
+            }
+        }
+    }
+
+    /**
+     * Method to decide whether a target is skipped entirely, because a previous run completed it. When retrying
+     * failures, a completed target is only processed again if it or one of its dependents failed.
+     */
+    public boolean isCompleted(Revision target) {
+        String coordinate = coordinate(target);
+        switch (mode) {
+            case RESUME:
+                return completed.contains(coordinate);
+            case RETRY_FAILED:
+                return completed.contains(coordinate)
+                        && !previous.getOrDefault(coordinate, Map.of()).containsValue(State.FAILED);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Method to get the dependents a target was resolved to by a previous run.
+     *
+     * @param target Target to get the dependents of.
+     * @return Previously resolved dependents, or null if the target has to be resolved (again).
+     */
+    public Set<Revision> previousDependents(Revision target) {
+        Map<String, State> pairs = previous.get(coordinate(target));
+        if (Objects.isNull(pairs) || pairs.get(TARGET) != State.RESOLVED) {
+            return null;
+        }
+        return pairs.keySet().stream()
+                .filter(dependent -> !dependent.equals(TARGET))
+                .map(dependent -> ids.containsKey(dependent)
+                        ? MergedCallGraphGenerator.revisionFromString(dependent, ids.get(dependent))
+                        : MergedCallGraphGenerator.revisionFromString(dependent))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Method to get the dependents of a target whose callgraphs were written by a previous run.
+     *
+     * @param target Target to get the dependents of.
+     * @return Previously written dependents, empty if there are none.
+     */
+    public Set<Revision> previouslyWritten(Revision target) {
+        Map<String, State> pairs = previous.getOrDefault(coordinate(target), Map.of());
+        return pairs.entrySet().stream()
+                .filter(pair -> !pair.getKey().equals(TARGET) && pair.getValue() == State.WRITTEN)
+                .map(pair -> MergedCallGraphGenerator.revisionFromString(pair.getKey()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Method to decide whether the dependents of a target that has no previously resolved dependents are resolved.
+     */
+    public boolean shouldResolve(Revision target) {
+        Map<String, State> pairs = previous.get(coordinate(target));
+        State state = Objects.isNull(pairs) ? null : pairs.get(TARGET);
+        return mode != Mode.RETRY_FAILED || state == State.FAILED;
+    }
+
+    /**
+     * Method to decide whether a (target, dependent) pair is processed.
+     */
+    public boolean shouldProcess(Revision target, Revision dependent) {
+        Map<String, State> pairs = previous.get(coordinate(target));
+        State state = Objects.isNull(pairs) ? null : pairs.get(coordinate(dependent));
+        switch (mode) {
+            case RESUME:
+                return state != State.WRITTEN && state != State.SKIPPED;
+            case RETRY_FAILED:
+                return state == State.FAILED;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public void resolved(Revision target, Set<? extends Revision> dependents) throws IOException {
+        StringBuilder lines = new StringBuilder(line(target, null, State.RESOLVED, ""));
+        for (Revision dependent : dependents) {
+            lines.append(line(target, dependent, State.RESOLVED, dependent.id > 0 ? String.valueOf(dependent.id) : ""));
+        }
+        append(lines.toString());
+    }
+
+    @Override
+    public void skipped(Revision target, Revision dependent) throws IOException {
+        append(line(target, dependent, State.SKIPPED, "not a dependency"));
+    }
+
+    @Override
+    public void merged(Revision target, Revision dependent, MergedCallGraph callgraph) throws IOException {
+        append(line(target, dependent, State.MERGED, ""));
+    }
+
+    @Override
+    public void stored(Revision target, Revision dependent, MergedCallGraph callgraph) throws IOException {
+        append(line(target, dependent, State.WRITTEN, ""));
+    }
+
+    @Override
+    public void failed(Revision target, Revision dependent, Throwable cause) throws IOException {
+        append(line(target, dependent, State.FAILED, String.valueOf(cause)));
+    }
+
+    /**
+     * Method to record that a target has been completed, once all completion listeners have succeeded.
+     */
+    public void markCompleted(Revision target) throws IOException {
+        append(line(target, null, State.COMPLETED, ""));
+    }
+
+    /**
+     * Method to close the manifest.
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static String line(Revision target, Revision dependent, State state, String reason) {
+        return String.format("%s\t%s\t%s\t%s\n", coordinate(target), Objects.isNull(dependent) ? TARGET : coordinate(dependent),
+                state, reason.replaceAll("[\\t\\r\\n]+", " "));
+    }
+
+    static String coordinate(Revision revision) {
+        return String.format("%s:%s:%s", revision.getGroupId(), revision.getArtifactId(), revision.version);
+    }
+
+    /**
+     * Method to durably append lines to the manifest.
+     */
+    private synchronized void append(String lines) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+}
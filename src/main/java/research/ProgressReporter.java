@@ -0,0 +1,93 @@
+package research;
+
+import eu.fasten.core.maven.data.Revision;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Feeds the progress and graph sizes of the pipeline into {@link Metrics}, and prints a progress line with the
+ * estimated remaining time whenever a target is completed.
+ */
+public class ProgressReporter implements CallgraphPipeline.Listener {
+
+    private final Map<Revision, TargetProgress> progress = new ConcurrentHashMap<>();
+    private final AtomicInteger remaining;
+
+    /**
+     * @param targets Number of targets of the run, only those of its own shard for a sharded worker.
+     */
+    public ProgressReporter(int targets) {
+        this.remaining = new AtomicInteger(targets);
+        Metrics.addTargets(targets);
+    }
+
+    @Override
+    public void resolved(Revision target, Set<? extends Revision> dependents) {
+        progressOf(target).dependents.addAndGet(dependents.size());
+        Metrics.addDependents(dependents.size());
+    }
+
+    @Override
+    public void skipped(Revision target, Revision dependent) {
+        finished(target);
+    }
+
+    @Override
+    public void merged(Revision target, Revision dependent, MergedCallGraph callgraph) {
+        Metrics.recordGraph(target, dependent, callgraph.getGraph().numNodes(), callgraph.getGraph().numArcs());
+    }
+
+    @Override
+    public void stored(Revision target, Revision dependent, MergedCallGraph callgraph) {
+        finished(target);
+    }
+
+    @Override
+    public void failed(Revision target, Revision dependent, Throwable cause) {
+        if (Objects.nonNull(dependent)) {
+            finished(target);
+        }
+    }
+
+    @Override
+    public void completed(Revision target) {
+        TargetProgress current = progress.remove(target);
+        // A worker that takes over the targets of other shards completes more targets than it started with.
+        if (remaining.decrementAndGet() < 0) {
+            Metrics.addTargets(1);
+        }
+        Metrics.targetCompleted();
+
+        long eta = Metrics.etaSeconds();
+        System.out.format("Completed %s: %d/%d dependents in %.2f seconds. %d/%d targets done, %s%n",
+                ProgressManifest.coordinate(target),
+                Objects.isNull(current) ? 0 : current.finished.get(), Objects.isNull(current) ? 0 : current.dependents.get(),
+                Objects.isNull(current) ? 0 : (System.nanoTime() - current.startNanos) / 1e9,
+                Metrics.progress().getTargetsCompleted(), Metrics.progress().getTargets(),
+                eta < 0 ? "ETA unknown." : "ETA " + Duration.ofSeconds(eta) + ".");
+    }
+
+    private void finished(Revision target) {
+        progressOf(target).finished.incrementAndGet();
+        Metrics.dependentFinished();
+    }
+
+    private TargetProgress progressOf(Revision target) {
+        return progress.computeIfAbsent(target, t -> new TargetProgress());
+    }
+
+    /**
+     * Progress of a single target, from the first event of the target onwards.
+     */
+    private static final class TargetProgress {
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger dependents = new AtomicInteger();
+        private final AtomicInteger finished = new AtomicInteger();
+    }
+
+}
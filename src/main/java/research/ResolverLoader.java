@@ -0,0 +1,49 @@
+package research;
+
+import eu.fasten.core.maven.resolution.IMavenResolver;
+import eu.fasten.core.maven.resolution.MavenResolverIO;
+import org.jooq.DSLContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * Loads the dependency graph of the Maven resolver. `MavenResolverIO` keeps a serialised copy of the graph in the
+ * temporary folder, so sharing that folder between runs and tools avoids rebuilding the graph from the database.
+ */
+public final class ResolverLoader {
+
+    private ResolverLoader() {
+    }
+
+    /**
+     * Method to get the temporary folder, creating it if needed.
+     *
+     * @param temporaryFolderUrl File path to the temporary folder, defaults to `tmp` in the working directory if null.
+     * @return Path to the temporary folder.
+     */
+    public static Path temporaryFolder(String temporaryFolderUrl) throws Exception {
+        Path folder = Objects.isNull(temporaryFolderUrl)
+                ? Paths.get(System.getProperty("user.dir"), "tmp")
+                : Paths.get(temporaryFolderUrl);
+        Files.createDirectories(folder);
+        return folder;
+    }
+
+    /**
+     * Method to load the resolver.
+     *
+     * @param context         Database context to load the dependency graph from, if it is not serialised yet.
+     * @param temporaryFolder Folder with the serialised dependency graph.
+     * @return Loaded resolver.
+     */
+    public static IMavenResolver load(DSLContext context, Path temporaryFolder) throws Exception {
+        long t0 = System.currentTimeMillis();
+        IMavenResolver resolver = new MavenResolverIO(context, temporaryFolder.toFile()).loadResolver();
+        System.out.format("Loaded resolver in %.2f seconds.%n", (System.currentTimeMillis() - t0) / 1000.0);
+        return resolver;
+    }
+
+}
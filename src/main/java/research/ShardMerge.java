@@ -0,0 +1,141 @@
+package research;
+
+import picocli.CommandLine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Combines the output trees and manifests of several `CallgraphGeneration` workers into a single output tree.
+ * A target that was written by several workers, because its lease was taken over, is taken from the worker that
+ * completed it according to the work folder, or otherwise from the worker that wrote it last.
+ */
+public class ShardMerge implements Callable<Integer> {
+
+    private static final String MANIFEST = "manifest.tsv";
+
+    @CommandLine.Parameters(description = "Output folders of the workers")
+    private List<File> shardFolders;
+
+    @CommandLine.Option(names = {"-o", "--output"}, description = "Folder to combine the output of all workers in", defaultValue = "input")
+    private File outputFolder;
+
+    @CommandLine.Option(names = {"--work-dir"}, description = "Work folder shared by the workers, to find the worker that completed every target")
+    private File workFolder;
+
+    @Override
+    public Integer call() throws Exception {
+        // 1. Find the workers that have a folder for every target.
+        Map<String, List<Path>> targets = new LinkedHashMap<>();
+        for (File shardFolder : shardFolders) {
+            try (Stream<Path> folders = Files.list(shardFolder.toPath())) {
+                for (Path folder : folders.filter(Files::isDirectory).sorted().collect(Collectors.toList())) {
+                    targets.computeIfAbsent(folder.getFileName().toString(), t -> new ArrayList<>()).add(shardFolder.toPath());
+                }
+            }
+        }
+
+        // 2. Copy every target from the worker it is taken from.
+        Path output = outputFolder.toPath();
+        Files.createDirectories(output);
+        Map<String, Path> sources = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Path>> target : targets.entrySet()) {
+            Path source = sourceOf(target.getKey(), target.getValue());
+            sources.put(target.getKey(), source);
+            copy(source.resolve(target.getKey()), output.resolve(target.getKey()));
+        }
+
+        // 3. Combine the manifests, taking the lines of every target from the same worker as its files.
+        Map<String, List<String>> lines = new LinkedHashMap<>();
+        for (File shardFolder : shardFolders) {
+            Path manifest = shardFolder.toPath().resolve(MANIFEST);
+            if (!Files.exists(manifest)) {
+                continue;
+            }
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String coordinate = line.split("\t", 2)[0];
+                Path source = sources.get(coordinate.replace(':', '_'));
+                if (Objects.isNull(source) || source.equals(shardFolder.toPath())) {
+                    lines.computeIfAbsent(coordinate, t -> new ArrayList<>()).add(line);
+                }
+            }
+        }
+        Path manifest = output.resolve(MANIFEST);
+        Path temporary = CallGraphWriter.temporaryFileOf(manifest);
+        Files.write(temporary, lines.values().stream().flatMap(List::stream).collect(Collectors.toList()), StandardCharsets.UTF_8);
+        CallGraphWriter.publish(temporary, manifest);
+
+        System.out.format("Combined %d targets of %d workers into %s.%n", targets.size(), shardFolders.size(), output);
+        return 0;
+    }
+
+    /**
+     * Method to choose the worker a target is taken from.
+     *
+     * @param target  Name of the target folder.
+     * @param workers Output folders of the workers that have a folder for the target.
+     * @return Output folder of the chosen worker.
+     */
+    private Path sourceOf(String target, List<Path> workers) throws IOException {
+        if (Objects.nonNull(workFolder)) {
+            Path completedBy = WorkDirectory.outputRootOf(workFolder.toPath(), target);
+            for (Path worker : workers) {
+                if (Objects.nonNull(completedBy) && worker.toAbsolutePath().normalize().equals(completedBy.normalize())) {
+                    return worker;
+                }
+            }
+        }
+
+        Path latest = workers.get(0);
+        for (Path worker : workers) {
+            if (lastModified(worker.resolve(target)).compareTo(lastModified(latest.resolve(target))) > 0) {
+                latest = worker;
+            }
+        }
+        return latest;
+    }
+
+    private static FileTime lastModified(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            return files.map(f -> f.toFile().lastModified()).max(Long::compare).map(FileTime::fromMillis).orElse(FileTime.fromMillis(0));
+        }
+    }
+
+    /**
+     * Method to copy a folder recursively, skipping the temporary files of interrupted writes.
+     */
+    private static void copy(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.walk(from)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Path target = to.resolve(from.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(target);
+                } else if (!file.getFileName().toString().endsWith(".tmp")) {
+                    Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int exitCode = new CommandLine(new ShardMerge()).execute(args);
+        System.exit(exitCode);
+    }
+
+}
@@ -0,0 +1,122 @@
+package research;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic partitioning of the artefact list over several workers, balanced by the number of dependents of every
+ * artefact. Every worker computes the same partition from the same inputs, so no coordination is needed.
+ */
+public final class Sharding {
+
+    private Sharding() {
+    }
+
+    /**
+     * Method to parse a shard in `i/N` format, where `0 <= i < N`.
+     *
+     * @param shard Shard to parse.
+     * @return Index and number of shards.
+     */
+    public static int[] parse(String shard) {
+        String[] parts = shard.split("/");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Shard must be in i/N format: " + shard);
+        }
+        int index = Integer.parseInt(parts[0].trim());
+        int count = Integer.parseInt(parts[1].trim());
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard index must be in [0, N): " + shard);
+        }
+        return new int[]{index, count};
+    }
+
+    /**
+     * Method to read the number of dependents of every artefact, as written by `ArtefactSelection`.
+     *
+     * @param path Path to `dependents-count.txt`, with `groupId:artifactId:version,count` lines.
+     * @return Number of dependents per artefact, empty if the file does not exist.
+     */
+    public static Map<String, Long> readWeights(Path path) throws IOException {
+        Map<String, Long> weights = new HashMap<>();
+        if (!Files.exists(path)) {
+            System.out.format("No dependent counts found in %s, every package counts as a single dependent.%n", path);
+            return weights;
+        }
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            int comma = line.lastIndexOf(',');
+            if (comma > 0) {
+                weights.put(line.substring(0, comma).trim(), Long.parseLong(line.substring(comma + 1).trim()));
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Method to assign every package to a shard, the heaviest package first to the lightest shard so far.
+     * Packages without a known weight count as a single dependent.
+     *
+     * @param packages Packages to assign.
+     * @param weights  Number of dependents per package.
+     * @param count    Number of shards.
+     * @return Shard of every package, in the same order as the packages.
+     */
+    public static int[] assign(List<String> packages, Map<String, Long> weights, int count) {
+        int[] shards = new int[packages.size()];
+        long[] loads = new long[count];
+        List<Integer> order = IntStream.range(0, packages.size()).boxed()
+                .sorted(Comparator.comparingLong((Integer i) -> weightOf(packages.get(i), weights)).reversed()
+                        .thenComparing(packages::get))
+                .collect(Collectors.toList());
+        for (int i : order) {
+            int lightest = 0;
+            for (int shard = 1; shard < count; shard++) {
+                if (loads[shard] < loads[lightest]) {
+                    lightest = shard;
+                }
+            }
+            shards[i] = lightest;
+            loads[lightest] += weightOf(packages.get(i), weights);
+        }
+        return shards;
+    }
+
+    /**
+     * Method to order the packages for a worker: the packages of its own shard first, followed by those of the other
+     * shards if it may help out with them.
+     *
+     * @param packages      Packages to order.
+     * @param weights       Number of dependents per package.
+     * @param index         Shard of the worker.
+     * @param count         Number of shards.
+     * @param includeOthers Whether the packages of the other shards are included.
+     * @return Packages to process, in order.
+     */
+    public static List<String> packagesOf(List<String> packages, Map<String, Long> weights, int index, int count, boolean includeOthers) {
+        int[] shards = assign(packages, weights, count);
+        List<String> ordered = new ArrayList<>();
+        for (int offset = 0; offset < (includeOthers ? count : 1); offset++) {
+            int shard = (index + offset) % count;
+            for (int i = 0; i < packages.size(); i++) {
+                if (shards[i] == shard) {
+                    ordered.add(packages.get(i));
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private static long weightOf(String pkg, Map<String, Long> weights) {
+        return Math.max(1, weights.getOrDefault(pkg.trim(), 1L));
+    }
+
+}
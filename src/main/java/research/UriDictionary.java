@@ -0,0 +1,212 @@
+package research;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import eu.fasten.core.data.DirectedGraph;
+import eu.fasten.core.data.metadatadb.codegen.tables.Callables;
+import eu.fasten.core.data.metadatadb.codegen.tables.Modules;
+import eu.fasten.core.data.metadatadb.codegen.tables.PackageVersions;
+import eu.fasten.core.data.metadatadb.codegen.tables.Packages;
+import eu.fasten.core.maven.data.Revision;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.jooq.DSLContext;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run-wide dictionary of callable URIs, persisted in a local RocksDB store keyed by callable ID.
+ * Only IDs that have never been seen are fetched from the database, in batches, instead of fetching all URIs of every
+ * merged callgraph. As a listener it collects the IDs of all callgraphs of a target, and writes a single URI file per
+ * target once the target is completed, such that the folder of every dependent only contains its edges.
+ */
+public class UriDictionary implements CallgraphPipeline.Listener, AutoCloseable {
+
+    private static final int BATCH_SIZE = 10000;
+    private static final byte[] NO_URI = new byte[0];
+
+    private final RocksDB store;
+    private final DSLContext context;
+    private final CallGraphWriter.Format format;
+    private final ProgressManifest manifest;
+    private final Map<Revision, LongOpenHashSet> targetIds = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+
+    /**
+     * @param folder   Folder of the persistent store, reused between runs.
+     * @param context  Database context to fetch unknown URIs from.
+     * @param format   Format to write the URI file of every target in.
+     * @param manifest Manifest of a resumed run, whose previously written callgraphs are read back from disk; may be null.
+     */
+    public UriDictionary(Path folder, DSLContext context, CallGraphWriter.Format format, ProgressManifest manifest) throws IOException, RocksDBException {
+        this.context = context;
+        this.format = format;
+        this.manifest = manifest;
+        Files.createDirectories(folder);
+        RocksDB.loadLibrary();
+        this.store = RocksDB.open(new Options().setCreateIfMissing(true), folder.toString());
+    }
+
+    /**
+     * Method to get the URIs of all nodes of a callgraph, fetching the ones that are not in the dictionary yet.
+     *
+     * @param graph Callgraph to get the URIs of.
+     * @return Mapping of node IDs to URIs, without the nodes that have no URI in the database.
+     */
+    public BiMap<Long, String> urisOf(DirectedGraph graph) throws RocksDBException {
+        BiMap<Long, String> uris = HashBiMap.create(graph.nodes().size());
+        LongArrayList missing = new LongArrayList();
+        for (LongIterator nodes = graph.nodes().iterator(); nodes.hasNext(); ) {
+            long id = nodes.nextLong();
+            byte[] uri = store.get(key(id));
+            if (Objects.isNull(uri)) {
+                missing.add(id);
+            } else {
+                hits.incrementAndGet();
+                if (uri.length > 0) {
+                    uris.put(id, new String(uri, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += BATCH_SIZE) {
+            uris.putAll(fetch(missing.subList(from, Math.min(missing.size(), from + BATCH_SIZE))));
+        }
+        return uris;
+    }
+
+    /**
+     * Method to add URIs that are already known, such as those of a cached merge, without fetching them.
+     *
+     * @param uris Mapping of node IDs to URIs.
+     */
+    public void add(Map<Long, String> uris) throws RocksDBException {
+        for (Map.Entry<Long, String> uri : uris.entrySet()) {
+            byte[] key = key(uri.getKey());
+            byte[] stored = store.get(key);
+            if (Objects.isNull(stored) || stored.length == 0) {
+                store.put(key, uri.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Method to fetch a batch of URIs from the database and add them to the dictionary. IDs without a URI are stored
+     * as well, such that they are not queried again.
+     */
+    private Map<Long, String> fetch(LongList ids) throws RocksDBException {
+        Map<Long, String> uris = new HashMap<>();
+        context.select(Callables.CALLABLES.ID, Packages.PACKAGES.PACKAGE_NAME, PackageVersions.PACKAGE_VERSIONS.VERSION, Callables.CALLABLES.FASTEN_URI)
+                .from(Callables.CALLABLES, Modules.MODULES, PackageVersions.PACKAGE_VERSIONS, Packages.PACKAGES)
+                .where(Callables.CALLABLES.ID.in(ids))
+                .and(Modules.MODULES.ID.eq(Callables.CALLABLES.MODULE_ID))
+                .and(PackageVersions.PACKAGE_VERSIONS.ID.eq(Modules.MODULES.PACKAGE_VERSION_ID))
+                .and(Packages.PACKAGES.ID.eq(PackageVersions.PACKAGE_VERSIONS.PACKAGE_ID))
+                .fetch()
+                .forEach(r -> uris.put(r.component1(), String.format("fasten://mvn!%s$%s%s", r.component2(), r.component3(), r.component4())));
+        queries.incrementAndGet();
+        fetched.addAndGet(ids.size());
+
+        for (long id : ids) {
+            String uri = uris.get(id);
+            store.put(key(id), Objects.isNull(uri) ? NO_URI : uri.getBytes(StandardCharsets.UTF_8));
+        }
+        return uris;
+    }
+
+    @Override
+    public void stored(Revision target, Revision dependent, MergedCallGraph callgraph) {
+        LongOpenHashSet ids = targetIds.computeIfAbsent(target, t -> new LongOpenHashSet());
+        synchronized (ids) {
+            ids.addAll(callgraph.getGraph().nodes());
+        }
+    }
+
+    @Override
+    public void completed(Revision target) throws IOException, RocksDBException {
+        LongOpenHashSet ids = targetIds.remove(target);
+        Set<Revision> previouslyWritten = Objects.isNull(manifest) ? Set.of() : manifest.previouslyWritten(target);
+        if (Objects.isNull(ids) && previouslyWritten.isEmpty()) {
+            return;
+        }
+
+        // Callgraphs written by a previous run are not in memory, so their IDs are read back from disk.
+        LongOpenHashSet all = Objects.isNull(ids) ? new LongOpenHashSet() : ids;
+        for (Revision dependent : previouslyWritten) {
+            LongArrayList sources = new LongArrayList();
+            LongArrayList targets = new LongArrayList();
+            CentralityAnalysis.readEdges(MergedCallGraphGenerator.outputFolderOf(target, dependent), sources, targets);
+            all.addAll(sources);
+            all.addAll(targets);
+        }
+
+        long[] sorted = all.toLongArray();
+        Arrays.sort(sorted);
+
+        // IDs that were never looked up, such as those of a cached merge without their URIs, are fetched now.
+        LongArrayList unknown = new LongArrayList();
+        for (long id : sorted) {
+            if (Objects.isNull(store.get(key(id)))) {
+                unknown.add(id);
+            }
+        }
+        for (int from = 0; from < unknown.size(); from += BATCH_SIZE) {
+            fetch(unknown.subList(from, Math.min(unknown.size(), from + BATCH_SIZE)));
+        }
+
+        long[] known = Arrays.stream(sorted).filter(id -> Objects.nonNull(uriOf(id))).toArray();
+        if (known.length < sorted.length) {
+            System.out.format("%d of %d callables of %s have no URI in the database and are left out of its URI file.%n",
+                    sorted.length - known.length, sorted.length, ProgressManifest.coordinate(target));
+        }
+        Path path = MergedCallGraphGenerator.outputFolderOf(target).resolve(CallGraphWriter.urisFileName(format));
+        Metrics.BYTES_WRITTEN.record(CallGraphWriter.writeUris(path, known, this::uriOf, format));
+    }
+
+    private String uriOf(long id) {
+        try {
+            byte[] uri = store.get(key(id));
+            return Objects.isNull(uri) || uri.length == 0 ? null : new String(uri, StandardCharsets.UTF_8);
+        } catch (RocksDBException e) {
+            throw new IllegalStateException("Could not read URI of " + id, e);
+        }
+    }
+
+    /**
+     * Method to summarise the hit and fetch counts of the dictionary.
+     *
+     * @return Human-readable summary of the statistics.
+     */
+    public String statistics() {
+        return String.format("URI dictionary: %d hits, %d IDs fetched in %d queries.", hits.get(), fetched.get(), queries.get());
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private static byte[] key(long id) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(id).array();
+    }
+
+}
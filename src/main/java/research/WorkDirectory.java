@@ -0,0 +1,197 @@
+package research;
+
+import eu.fasten.core.maven.data.Revision;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared folder through which several workers claim targets, such that every target is processed by a single worker.
+ * A worker claims a target by creating its lease file, and keeps the lease alive by touching it periodically. A lease
+ * that has not been touched for longer than the lease time belongs to a dead worker and may be taken over. Completed
+ * targets get a marker file holding the worker and the output folder they were written to.
+ */
+public class WorkDirectory implements CallgraphPipeline.Listener, AutoCloseable {
+
+    private final Path leases;
+    private final Path done;
+    private final String worker;
+    private final Path outputRoot;
+    private final long leaseMillis;
+    private final Set<Path> held = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService heartbeat;
+
+    /**
+     * @param folder       Shared work folder.
+     * @param worker       Unique name of this worker.
+     * @param outputRoot   Root of the output tree of this worker, recorded in the marker of every completed target.
+     * @param leaseSeconds Number of seconds after which a lease that has not been renewed expires.
+     */
+    public WorkDirectory(Path folder, String worker, Path outputRoot, long leaseSeconds) throws IOException {
+        this.leases = Files.createDirectories(folder.resolve("leases"));
+        this.done = Files.createDirectories(folder.resolve("done"));
+        this.worker = worker;
+        this.outputRoot = outputRoot.toAbsolutePath();
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(leaseSeconds);
+
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, leaseMillis / 3);
+        heartbeat.scheduleAtFixedRate(this::renew, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Method to check whether a target has been completed by any worker.
+     */
+    public boolean isDone(Revision target) {
+        return Files.exists(done.resolve(name(target)));
+    }
+
+    /**
+     * Method to claim a target, taking over the lease of a dead worker if needed.
+     *
+     * @param target Target to claim.
+     * @return Whether this worker now holds the lease of the target.
+     */
+    public boolean tryClaim(Revision target) throws IOException {
+        if (isDone(target)) {
+            return false;
+        }
+        Path lease = leases.resolve(name(target));
+        if (create(lease)) {
+            return true;
+        }
+
+        // Take over an expired lease by moving it out of the way first, so only one worker can take it over.
+        if (!isExpired(lease)) {
+            return false;
+        }
+        Path expired = lease.resolveSibling(lease.getFileName() + "." + worker + ".expired");
+        try {
+            Files.move(lease, expired, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (!isExpired(expired)) {
+            // The owner renewed the lease in the meantime.
+            Files.move(expired, lease, StandardCopyOption.ATOMIC_MOVE);
+            return false;
+        }
+        Files.deleteIfExists(expired);
+        System.out.format("Taking over expired lease of %s.%n", ProgressManifest.coordinate(target));
+        return create(lease);
+    }
+
+    /**
+     * Method to check whether any of the packages is neither completed nor held by a live worker.
+     *
+     * @param packages Packages that have not been completed.
+     * @return Whether this worker could claim one of them.
+     */
+    public boolean hasClaimable(List<Revision> packages) {
+        return packages.stream().anyMatch(target -> {
+            Path lease = leases.resolve(name(target));
+            return !isDone(target) && (!Files.exists(lease) || isExpired(lease));
+        });
+    }
+
+    /**
+     * Method to get the number of milliseconds after which a lease expires.
+     */
+    public long leaseMillis() {
+        return leaseMillis;
+    }
+
+    @Override
+    public void completed(Revision target) throws IOException {
+        Path lease = leases.resolve(name(target));
+        if (!held.contains(lease)) {
+            return;
+        }
+        // The lease is given up even if the marker cannot be written, such that the target is claimed again instead of
+        // being renewed forever by a worker that waits for it to be done.
+        try {
+            Path marker = done.resolve(name(target));
+            Path temporary = CallGraphWriter.temporaryFileOf(marker.resolveSibling(marker.getFileName() + "." + worker));
+            Files.write(temporary, String.format("%s\t%s%n", worker, outputRoot).getBytes(StandardCharsets.UTF_8));
+            CallGraphWriter.publish(temporary, marker);
+        } finally {
+            held.remove(lease);
+            Files.deleteIfExists(lease);
+        }
+    }
+
+    /**
+     * Method to read the output folder a target was written to, according to its marker.
+     *
+     * @param folder Shared work folder.
+     * @param name   Name of the target folder, `groupId_artifactId_version`.
+     * @return Root of the output tree the target was written to, or null if the target has not been completed.
+     */
+    static Path outputRootOf(Path folder, String name) throws IOException {
+        Path marker = folder.resolve("done").resolve(name);
+        if (!Files.exists(marker)) {
+            return null;
+        }
+        String[] fields = Files.readString(marker, StandardCharsets.UTF_8).trim().split("\t", 2);
+        return fields.length < 2 ? null : Path.of(fields[1]);
+    }
+
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+    }
+
+    private boolean create(Path lease) throws IOException {
+        try {
+            Files.write(lease, worker.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            held.add(lease);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(Path lease) {
+        try {
+            return System.currentTimeMillis() - Files.getLastModifiedTime(lease).toMillis() > leaseMillis;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void renew() {
+        FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+        for (Path lease : held) {
+            try {
+                Files.setLastModifiedTime(lease, now);
+            } catch (NoSuchFileException e) {
+                System.out.format("Lost lease %s, it was taken over by another worker.%n", lease.getFileName());
+                held.remove(lease);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static String name(Revision target) {
+        return String.format("%s_%s_%s", target.getGroupId(), target.getArtifactId(), target.version);
+    }
+
+}
@@ -14,7 +14,7 @@ def process_artefact(ARTEFACT_DIR):
     artefact = '{}:{}${}'.format(*os.path.basename(ARTEFACT_DIR).split('_'))
 
     # Extract all the URI and callgraph data.
-    uris_content = '\n'.join([ open(file).read() for file in glob.glob(os.path.join(ARTEFACT_DIR, '*', 'uris.csv')) ])
+    uris_content = '\n'.join([ open(file).read() for file in glob.glob(os.path.join(ARTEFACT_DIR, 'uris.csv')) + glob.glob(os.path.join(ARTEFACT_DIR, '*', 'uris.csv')) ])
     callgraph_content = '\n'.join([ open(file).read() for file in glob.glob(os.path.join(ARTEFACT_DIR, '*', 'callgraph.csv')) ])
 
     # Map every ID to an artefact.
@@ -20,7 +20,7 @@ def process_artefact(ARTEFACT_DIR):
     callgraph_data = '\n'.join([ open(file).read() for file in callgraph_files ]).replace('source,target\n', '').split()
 
     # Extract the list of all URIs of all methods within the analysed artefact.
-    uris_files = glob.glob(os.path.join(ARTEFACT_DIR, '*', 'uris.csv'))
+    uris_files = glob.glob(os.path.join(ARTEFACT_DIR, 'uris.csv')) + glob.glob(os.path.join(ARTEFACT_DIR, '*', 'uris.csv'))
     uris = set().union(*[ open(file).read().split() for file in uris_files ])
 
     # Extract the IDs of the artefact we are analysing, also filter based on the exlusion regex.
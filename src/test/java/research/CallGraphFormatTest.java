@@ -0,0 +1,138 @@
+package research;
+
+import eu.fasten.core.data.ArrayImmutableDirectedGraph;
+import eu.fasten.core.data.DirectedGraph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Round trips of the binary formats through {@link CallGraphWriter} and {@link CallGraphReader}.
+ */
+class CallGraphFormatTest {
+
+    private static final long[] VALUES = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, -1};
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void varIntsRoundTripThroughByteBuffer() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(VALUES.length * VarInts.MAX_BYTES);
+        for (long value : VALUES) {
+            VarInts.write(buffer, value);
+        }
+        buffer.flip();
+        for (long value : VALUES) {
+            assertEquals(value, VarInts.read(buffer));
+        }
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void varIntsRoundTripThroughDataStreams() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (long value : VALUES) {
+            VarInts.write(out, value);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (long value : VALUES) {
+            assertEquals(value, VarInts.read(in));
+        }
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    void varIntsUseOneByteForSmallValuesAndTenForNegativeOnes() {
+        ByteBuffer buffer = ByteBuffer.allocate(VarInts.MAX_BYTES);
+        VarInts.write(buffer, 127);
+        assertEquals(1, buffer.position());
+        buffer.clear();
+        VarInts.write(buffer, -1);
+        assertEquals(VarInts.MAX_BYTES, buffer.position());
+    }
+
+    @Test
+    void emptyGraphRoundTrips() throws IOException {
+        Path path = folder.resolve("callgraph.bin");
+        CallGraphWriter.writeEdges(path, new ArrayImmutableDirectedGraph.Builder().build(), CallGraphWriter.Format.BINARY);
+
+        assertEquals(0, CallGraphReader.countEdges(path));
+        assertEquals(List.of(), readEdges(path));
+    }
+
+    @Test
+    void edgesRoundTripInAscendingOrder() throws IOException {
+        // Node 1 has no outgoing edges, node 7 has no edges at all, and the IDs are far apart to need several varint bytes.
+        long[][] arcs = {{1000000, 2}, {1000000, 1}, {2, 1}, {2, 1000000}, {Long.MAX_VALUE, 2}, {5, Long.MAX_VALUE}};
+        var builder = new ArrayImmutableDirectedGraph.Builder();
+        for (long node : new long[]{1, 2, 5, 7, 1000000, Long.MAX_VALUE}) {
+            builder.addInternalNode(node);
+        }
+        for (long[] arc : arcs) {
+            builder.addArc(arc[0], arc[1]);
+        }
+        DirectedGraph graph = builder.build();
+
+        Path path = folder.resolve("callgraph.bin");
+        CallGraphWriter.writeEdges(path, graph, CallGraphWriter.Format.BINARY);
+
+        assertEquals(arcs.length, CallGraphReader.countEdges(path));
+        assertEquals(List.of(List.of(2L, 1L), List.of(2L, 1000000L), List.of(5L, Long.MAX_VALUE),
+                List.of(1000000L, 1L), List.of(1000000L, 2L), List.of(Long.MAX_VALUE, 2L)), readEdges(path));
+    }
+
+    @Test
+    void emptyUrisRoundTrip() throws IOException {
+        Path path = folder.resolve("uris.bin");
+        CallGraphWriter.writeUris(path, Map.of(), CallGraphWriter.Format.BINARY);
+
+        assertEquals(Map.of(), readUris(path));
+    }
+
+    @Test
+    void urisRoundTripIncludingOnesLongerThanTheBuffer() throws IOException {
+        // A URI of several buffers, with multi-byte characters that straddle the buffer boundaries.
+        StringBuilder longUri = new StringBuilder("fasten://mvn!g:a$1.0/p/C.m(");
+        while (longUri.length() < 3 * 65536) {
+            longUri.append("%2Fjava.lang%2FString\u00e9\u20ac,");
+        }
+        Map<Long, String> uris = new TreeMap<>();
+        uris.put(3L, "fasten://mvn!g:a$1.0/p/C.m()%2Fjava.lang%2FVoidType");
+        uris.put(4L, longUri.toString());
+        uris.put(1L << 40, "");
+        uris.put(Long.MAX_VALUE, "fasten://mvn!g:b$2.0/p/D.<init>()");
+
+        Path path = folder.resolve("uris.bin");
+        CallGraphWriter.writeUris(path, uris, CallGraphWriter.Format.BINARY);
+
+        assertEquals(uris, readUris(path));
+    }
+
+    private static List<List<Long>> readEdges(Path path) throws IOException {
+        List<List<Long>> edges = new ArrayList<>();
+        CallGraphReader.readEdges(path, (source, target) -> edges.add(List.of(source, target)));
+        return edges;
+    }
+
+    private static Map<Long, String> readUris(Path path) throws IOException {
+        Map<Long, String> uris = new TreeMap<>();
+        CallGraphReader.readUris(path, uris::put);
+        return uris;
+    }
+
+}
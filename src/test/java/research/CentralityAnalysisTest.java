@@ -0,0 +1,92 @@
+package research;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Centralities of {@link CsrGraph} and the number formatting of {@link CentralityAnalysis}, compared to the values of
+ * `analysis_degree.py` and `analysis_eigenvector.py`.
+ */
+class CentralityAnalysisTest {
+
+    /**
+     * Method to build the graph 10-20, 20-30, 30-30, 30-40 from two dependents that share some of their edges, one of
+     * them in the opposite direction.
+     */
+    private static CsrGraph graphWithSelfLoopAndDuplicateEdges() {
+        CsrGraph.Builder builder = new CsrGraph.Builder();
+        builder.add(LongArrayList.wrap(new long[]{10, 20, 30, 20}), LongArrayList.wrap(new long[]{20, 30, 30, 30}));
+        builder.add(LongArrayList.wrap(new long[]{20, 30, 30}), LongArrayList.wrap(new long[]{10, 40, 20}));
+        return builder.build();
+    }
+
+    @Test
+    void nodesAreSortedByIdAndDuplicateEdgesAreCollapsed() {
+        CsrGraph graph = graphWithSelfLoopAndDuplicateEdges();
+        assertEquals(4, graph.numNodes());
+        for (int i = 0; i < graph.numNodes(); i++) {
+            assertEquals(10L * (i + 1), graph.id(i));
+        }
+    }
+
+    @Test
+    void degreeCentralityCountsSelfLoopsTwice() {
+        // networkx.degree_centrality: degrees 1, 2, 2 + 2 and 1 divided by 3 other nodes.
+        assertArrayEquals(new double[]{1.0 / 3, 2.0 / 3, 4.0 / 3, 1.0 / 3}, graphWithSelfLoopAndDuplicateEdges().degreeCentrality(), 1e-15);
+    }
+
+    @Test
+    void eigenvectorCentralityIsTheLeadingEigenvectorOfTheAdjacencyMatrix() throws Exception {
+        // networkx.eigenvector_centrality_numpy, the self-loop is a 1 on the diagonal (eigenvalue 2.0952939852239).
+        double[] expected = {0.22644302470389435, 0.47446470765798016, 0.7677000234528943, 0.36639251048623317};
+        double[] centrality = graphWithSelfLoopAndDuplicateEdges().eigenvectorCentrality(ForkJoinPool.commonPool(), 1000, 1e-12);
+        assertArrayEquals(expected, centrality, 1e-9);
+    }
+
+    @Test
+    void eigenvectorCentralityConvergesOnBipartiteGraphs() throws Exception {
+        // Power iteration on the adjacency matrix of a star alternates between the centre and the leaves forever.
+        CsrGraph.Builder builder = new CsrGraph.Builder();
+        builder.add(LongArrayList.wrap(new long[]{1, 1, 1}), LongArrayList.wrap(new long[]{2, 3, 4}));
+        double[] centrality = builder.build().eigenvectorCentrality(ForkJoinPool.commonPool(), 1000, 1e-6);
+        double leaf = 1 / Math.sqrt(6);
+        assertArrayEquals(new double[]{Math.sqrt(3) * leaf, leaf, leaf, leaf}, centrality, 1e-5);
+    }
+
+    @Test
+    void eigenvectorCentralityStopsOnceTheTotalChangeIsBelowNodesTimesTolerance() throws Exception {
+        // Starting from the uniform vector, the first iteration changes the values of the star by about 0.62 in total.
+        CsrGraph.Builder builder = new CsrGraph.Builder();
+        builder.add(LongArrayList.wrap(new long[]{1, 1, 1}), LongArrayList.wrap(new long[]{2, 3, 4}));
+        CsrGraph star = builder.build();
+        double[] once = star.eigenvectorCentrality(ForkJoinPool.commonPool(), 1, 0);
+        assertArrayEquals(once, star.eigenvectorCentrality(ForkJoinPool.commonPool(), 1000, 0.16), 0);
+        assertNotEquals(once[0], star.eigenvectorCentrality(ForkJoinPool.commonPool(), 1000, 0.15)[0]);
+    }
+
+    @Test
+    void formatDoubleMatchesPythonRepr() {
+        assertEquals("0.0", CentralityAnalysis.formatDouble(0));
+        assertEquals("1.0", CentralityAnalysis.formatDouble(1));
+        assertEquals("0.30000000000000004", CentralityAnalysis.formatDouble(0.1 + 0.2));
+        assertEquals("0.3333333333333333", CentralityAnalysis.formatDouble(1.0 / 3));
+        assertEquals("123456.5", CentralityAnalysis.formatDouble(123456.5));
+
+        // Python switches to scientific notation below 1e-4 and from 1e16 onwards.
+        assertEquals("0.0001", CentralityAnalysis.formatDouble(1e-4));
+        assertEquals("0.00012", CentralityAnalysis.formatDouble(1.2e-4));
+        assertEquals("9.99e-05", CentralityAnalysis.formatDouble(9.99e-5));
+        assertEquals("1e-05", CentralityAnalysis.formatDouble(1e-5));
+        assertEquals("2.5e-07", CentralityAnalysis.formatDouble(2.5e-7));
+        assertEquals("9999999999999998.0", CentralityAnalysis.formatDouble(9999999999999998.0));
+        assertEquals("1e+16", CentralityAnalysis.formatDouble(1e16));
+        assertEquals("1.5e+16", CentralityAnalysis.formatDouble(1.5e16));
+    }
+
+}
@@ -0,0 +1,159 @@
+package research;
+
+import com.google.common.collect.HashBiMap;
+import eu.fasten.core.data.ArrayImmutableDirectedGraph;
+import eu.fasten.core.maven.data.ResolvedRevision;
+import eu.fasten.core.maven.data.Revision;
+import eu.fasten.core.maven.data.Scope;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Several worker processes running {@link CallgraphGeneration#runClaimed} on a shared {@link WorkDirectory}, one of
+ * which is killed while it holds a lease, followed by a {@link ShardMerge} of their output folders.
+ */
+class ShardingTest {
+
+    private static final int TARGETS = 6;
+    private static final String FILE = "worker.txt";
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void leaseOfKilledWorkerIsTakenOverAndMergedFromItsOwner() throws Exception {
+        Path work = folder.resolve("work");
+        List<Path> outputs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            outputs.add(folder.resolve("input-" + i));
+        }
+
+        // 1. Start a slow worker and kill it once it has partially written the first target it claimed.
+        Process slow = start(work, 0, outputs.get(0), 60_000);
+        String lost = null;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (lost == null && System.currentTimeMillis() < deadline) {
+            for (int i = 0; i < TARGETS; i++) {
+                if (Files.exists(outputs.get(0).resolve(name(i)).resolve(FILE))) {
+                    lost = name(i);
+                }
+            }
+            Thread.sleep(50);
+        }
+        assertNotNull(lost);
+        assertTrue(Files.exists(work.resolve("leases").resolve(lost)));
+        slow.destroyForcibly().waitFor();
+
+        // 2. Let two fast workers process all targets, including the one of the killed worker.
+        List<Process> workers = List.of(start(work, 1, outputs.get(1), 100), start(work, 2, outputs.get(2), 100));
+        for (Process worker : workers) {
+            assertTrue(worker.waitFor(60, TimeUnit.SECONDS));
+            assertEquals(0, worker.exitValue());
+        }
+        for (int i = 0; i < TARGETS; i++) {
+            assertTrue(Files.exists(work.resolve("done").resolve(name(i))));
+            assertFalse(Files.exists(work.resolve("leases").resolve(name(i))));
+        }
+        Path owner = WorkDirectory.outputRootOf(work, lost);
+        assertNotEquals(outputs.get(0).toAbsolutePath(), owner);
+
+        // 3. The partial output of the killed worker is the newest, yet the output of the owner is merged.
+        Files.setLastModifiedTime(outputs.get(0).resolve(lost).resolve(FILE), FileTime.fromMillis(System.currentTimeMillis() + 3_600_000));
+        Path merged = folder.resolve("input");
+        List<String> args = new ArrayList<>(List.of("--work-dir", work.toString(), "--output", merged.toString()));
+        outputs.forEach(output -> args.add(output.toString()));
+        assertEquals(0, new CommandLine(new ShardMerge()).execute(args.toArray(new String[0])));
+        assertEquals(Files.readString(owner.resolve(lost).resolve(FILE), StandardCharsets.UTF_8),
+                Files.readString(merged.resolve(lost).resolve(FILE), StandardCharsets.UTF_8));
+        for (int i = 0; i < TARGETS; i++) {
+            assertTrue(Files.exists(merged.resolve(name(i)).resolve(FILE)));
+        }
+    }
+
+    private Process start(Path work, int index, Path output, long millisPerTarget) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Worker.class.getName(),
+                work.toString(), String.valueOf(index), output.toString(), String.valueOf(millisPerTarget))
+                .redirectErrorStream(true)
+                .redirectOutput(folder.resolve("worker-" + index + ".log").toFile())
+                .start();
+    }
+
+    private static String name(int i) {
+        return String.format("research_target%d_1.0", i);
+    }
+
+    /**
+     * Worker that runs the pipeline of `CallgraphGeneration --shard index/3 --work-dir`, with operations that resolve
+     * every target to a single dependent and store its callgraph by writing the name of the worker into the output
+     * folder of the target.
+     */
+    static final class Worker {
+
+        public static void main(String[] args) throws Exception {
+            Path work = Path.of(args[0]);
+            int index = Integer.parseInt(args[1]);
+            Path output = Path.of(args[2]);
+            long millisPerTarget = Long.parseLong(args[3]);
+
+            List<String> packages = new ArrayList<>();
+            for (int i = 0; i < TARGETS; i++) {
+                packages.add(String.format("research:target%d:1.0", i));
+            }
+            MergedCallGraphGenerator.useOutputRoot(output);
+            var pipeline = new CallgraphPipeline(false, 1, 1, 1, 1, 1);
+            pipeline.useOperations(new CallgraphPipeline.Operations() {
+                @Override
+                public Set<? extends Revision> dependentsOf(Revision target, boolean transitive) {
+                    return Set.of(new Revision("research", "dependent", "1.0", new Timestamp(-1)));
+                }
+
+                @Override
+                public Set<ResolvedRevision> dependenciesOf(Revision dependent, Revision target) {
+                    return Set.of(new ResolvedRevision(target, Scope.COMPILE));
+                }
+
+                @Override
+                public long costOf(Revision dependent, Set<ResolvedRevision> dependencies) {
+                    return 1;
+                }
+
+                @Override
+                public MergedCallGraph merge(Revision dependent, Set<ResolvedRevision> dependencies) {
+                    return new MergedCallGraph(new ArrayImmutableDirectedGraph.Builder().build(), HashBiMap.create());
+                }
+
+                @Override
+                public void store(MergedCallGraph callgraph, Revision dependent, Revision target) throws Exception {
+                    Path folder = Files.createDirectories(MergedCallGraphGenerator.outputFolderOf(target));
+                    Files.writeString(folder.resolve(FILE), "worker-" + index, StandardCharsets.UTF_8);
+                    Thread.sleep(millisPerTarget);
+                }
+            });
+            try (WorkDirectory workDirectory = new WorkDirectory(work, "worker-" + index, output, 1)) {
+                pipeline.useWorkDirectory(workDirectory);
+                CallgraphGeneration.runClaimed(pipeline, workDirectory, Sharding.packagesOf(packages, Map.of(), index, 3, true));
+            }
+        }
+    }
+
+}
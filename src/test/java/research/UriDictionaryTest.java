@@ -0,0 +1,93 @@
+package research;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import eu.fasten.core.data.ArrayImmutableDirectedGraph;
+import eu.fasten.core.data.metadatadb.codegen.tables.Callables;
+import eu.fasten.core.data.metadatadb.codegen.tables.PackageVersions;
+import eu.fasten.core.data.metadatadb.codegen.tables.Packages;
+import eu.fasten.core.maven.data.ResolvedRevision;
+import eu.fasten.core.maven.data.Revision;
+import eu.fasten.core.maven.data.Scope;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * URI file of a target written by {@link UriDictionary} when the merged callgraphs come from the {@link MergedGraphCache}.
+ */
+class UriDictionaryTest {
+
+    @TempDir
+    Path folder;
+
+    @AfterEach
+    void tearDown() {
+        MergedCallGraphGenerator.useMergeCache(null);
+        MergedCallGraphGenerator.useUriDictionary(null);
+        MergedCallGraphGenerator.useOutputRoot(Paths.get("input"));
+    }
+
+    @Test
+    void urisOfCachedMergeAreWrittenToTheTargetUriFile() throws Exception {
+        Revision target = new Revision("org.example", "target", "1.0", new Timestamp(-1));
+        Revision dependent = new Revision("org.example", "dependent", "2.0", new Timestamp(-1));
+        Set<ResolvedRevision> dependencies = Set.of(new ResolvedRevision(target, Scope.COMPILE));
+
+        // 1. Cache a merge, as a run without the dictionary does: node 4 has no URI in the database.
+        var builder = new ArrayImmutableDirectedGraph.Builder();
+        for (long node = 1; node <= 4; node++) {
+            builder.addInternalNode(node);
+        }
+        builder.addArc(1, 2);
+        builder.addArc(2, 3);
+        builder.addArc(3, 4);
+        BiMap<Long, String> uris = HashBiMap.create();
+        for (long node = 1; node <= 3; node++) {
+            uris.put(node, String.format("fasten://mvn!org.example:target$1.0/p/C.m%d()%%2Fjava.lang%%2FVoidType", node));
+        }
+        MergedGraphCache cache = new MergedGraphCache(folder.resolve("cache"), Long.MAX_VALUE, 0);
+        cache.put(MergedGraphCache.key(List.of("org.example:target:1.0", "org.example:dependent:2.0")), new MergedCallGraph(builder.build(), uris));
+
+        // 2. Generate the callgraph through the cache with a new dictionary, whose database knows no URIs.
+        AtomicInteger queries = new AtomicInteger();
+        DSLContext context = DSL.using(new MockConnection(ctx -> {
+            queries.incrementAndGet();
+            return new MockResult[]{new MockResult(0, DSL.using(SQLDialect.POSTGRES).newResult(Callables.CALLABLES.ID,
+                    Packages.PACKAGES.PACKAGE_NAME, PackageVersions.PACKAGE_VERSIONS.VERSION, Callables.CALLABLES.FASTEN_URI))};
+        }), SQLDialect.POSTGRES);
+        Map<Long, String> written = new TreeMap<>();
+        try (UriDictionary dictionary = new UriDictionary(folder.resolve("dictionary"), context, CallGraphWriter.Format.BINARY, null)) {
+            MergedCallGraphGenerator.useOutputRoot(folder.resolve("input"));
+            MergedCallGraphGenerator.useMergeCache(cache);
+            MergedCallGraphGenerator.useUriDictionary(dictionary);
+
+            MergedCallGraph callgraph = MergedCallGraphGenerator.generateCallGraph(dependent, dependencies);
+            MergedCallGraphGenerator.storeCallGraph(callgraph, dependent, target);
+            dictionary.stored(target, dependent, callgraph);
+            dictionary.completed(target);
+        }
+
+        // 3. The cached URIs are written without a query, only the node without a URI is looked up, and left out.
+        CentralityAnalysis.readUris(MergedCallGraphGenerator.outputFolderOf(target), written::put);
+        assertEquals(new TreeMap<>(uris), written);
+        assertEquals(1, queries.get());
+    }
+
+}